@@ -1,29 +1,61 @@
 package com.fseiji.helpdesk;
 
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.fseiji.helpdesk.api.entity.Sequence;
+import com.fseiji.helpdesk.api.entity.Ticket;
 import com.fseiji.helpdesk.api.entity.User;
 import com.fseiji.helpdesk.api.enums.ProfileEnum;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
 import com.fseiji.helpdesk.api.repository.UserRepository;
+import com.fseiji.helpdesk.api.service.SequenceService;
+import com.fseiji.helpdesk.api.service.TicketService;
 
 @SpringBootApplication
 public class HelpDeskApplication {
 
+	private static final Logger log = LoggerFactory.getLogger(HelpDeskApplication.class);
+
 	public static void main(String[] args) {
 		SpringApplication.run(HelpDeskApplication.class, args);
 	}
 
 	@Bean
-	CommandLineRunner init(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+	CommandLineRunner init(UserRepository userRepository, PasswordEncoder passwordEncoder,
+			TicketService ticketService, TicketRepository ticketRepository, SequenceService sequenceService) {
 		return args -> {
 			initUser(userRepository, passwordEncoder);
+			initTicketNumber(ticketRepository, sequenceService);
+			ticketRepository.fillVersion();
+			ticketService.initSummary();
 		};
 	}
 
+	// a sequência começa depois do maior número já usado pelos tickets existentes. Os tickets sem
+	// número ou com um número repetido (dos antigos números aleatórios) recebem um novo da sequência,
+	// antes que o IndexBootstrap crie o índice único de number
+	private void initTicketNumber(TicketRepository ticketRepository, SequenceService sequenceService) {
+		Ticket last = ticketRepository.findTopByOrderByNumberDesc();
+		if (last != null && last.getNumber() != null) {
+			sequenceService.raiseTo(Sequence.TICKET_NUMBER, last.getNumber());
+		}
+		List<String> ids = ticketRepository.findIdsToRenumber();
+		for (String id : ids) {
+			ticketRepository.updateNumber(id, (int) sequenceService.next(Sequence.TICKET_NUMBER));
+		}
+		if (!ids.isEmpty()) {
+			log.warn("Renumbered {} tickets without a number or with a repeated number", ids.size());
+		}
+	}
+
 	private void initUser(UserRepository userRepository, PasswordEncoder passwordEncoder) {
 		User admin = new User();
 		admin.setEmail("admin@helpdesk.com");
@@ -0,0 +1,135 @@
+package com.fseiji.helpdesk.api.config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.entity.IdempotencyKey;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+
+/**
+ * Cria e confere, depois que a aplicação subiu, os índices declarados nas
+ * entidades (@Indexed, @CompoundIndex). Roda em uma thread própria para não
+ * atrasar a subida; ready() completa quando todos os índices existem. Se algum
+ * não puder ser criado (ex.: o índice único de number com números repetidos),
+ * o health da aplicação fica DOWN com a falha
+ */
+@Component
+public class IndexBootstrap implements ApplicationListener<ApplicationReadyEvent>, HealthIndicator {
+
+	private static final Logger log = LoggerFactory.getLogger(IndexBootstrap.class);
+
+	private static final Class<?>[] ENTITIES = { User.class, Ticket.class, ChangeStatus.class, IdempotencyKey.class };
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final CompletableFuture<List<String>> ready = new CompletableFuture<List<String>>();
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		Thread thread = new Thread(this::ensureIndexes, "index-bootstrap");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// nomes de todos os índices garantidos, ou IndexBootstrapException com todos os que falharam
+	public CompletableFuture<List<String>> ready() {
+		return this.ready;
+	}
+
+	// UNKNOWN enquanto os índices são criados, para não tirar o nó do ar durante a criação
+	@Override
+	public Health health() {
+		if (!this.ready.isDone()) {
+			return Health.unknown().build();
+		}
+		try {
+			return Health.up().withDetail("indexes", this.ready.join()).build();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof IndexBootstrapException) {
+				IndexBootstrapException failure = (IndexBootstrapException) e.getCause();
+				return Health.down().withDetail("indexes", failure.getCreated())
+						.withDetail("failures", failure.getFailures()).build();
+			}
+			return Health.down().withDetail("error", e.getCause().toString()).build();
+		}
+	}
+
+	// cada índice é criado independentemente: uma falha não impede a criação dos seguintes
+	void ensureIndexes() {
+		List<String> names = new ArrayList<String>();
+		Map<String, String> failures = new LinkedHashMap<String, String>();
+		try {
+			IndexResolver resolver = IndexResolver.create(this.mongoTemplate.getConverter().getMappingContext());
+			for (Class<?> entity : ENTITIES) {
+				ensureIndexes(resolver, entity, names, failures);
+			}
+		} catch (RuntimeException e) {
+			failures.put("*", e.toString());
+		}
+		if (failures.isEmpty()) {
+			log.info("Indexes ready: {}", names);
+			this.ready.complete(names);
+		} else {
+			log.error("Index bootstrap failed for {}, health is DOWN until the indexes are fixed and the application "
+					+ "restarted; indexes ready: {}", failures, names);
+			this.ready.completeExceptionally(new IndexBootstrapException(names, failures));
+		}
+	}
+
+	private void ensureIndexes(IndexResolver resolver, Class<?> entity, List<String> names,
+			Map<String, String> failures) {
+		List<String> entityNames = new ArrayList<String>();
+		try {
+			IndexOperations indexOperations = this.mongoTemplate.indexOps(entity);
+			for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+				try {
+					entityNames.add(indexOperations.ensureIndex(index));
+				} catch (RuntimeException e) {
+					failures.put(entity.getSimpleName() + "." + name(index), e.toString());
+				}
+			}
+			Set<String> existing = new HashSet<String>();
+			for (IndexInfo index : indexOperations.getIndexInfo()) {
+				existing.add(index.getName());
+			}
+			for (String name : entityNames) {
+				if (existing.contains(name)) {
+					names.add(name);
+				} else {
+					failures.put(entity.getSimpleName() + "." + name, "Missing index after creation");
+				}
+			}
+		} catch (RuntimeException e) {
+			failures.put(entity.getSimpleName(), e.toString());
+		}
+	}
+
+	// nome declarado no @Indexed/@CompoundIndex, ou as chaves quando não há nome
+	private String name(IndexDefinition index) {
+		Object name = index.getIndexOptions().get("name");
+		return name != null ? name.toString() : index.getIndexKeys().toJson();
+	}
+}
@@ -0,0 +1,31 @@
+package com.fseiji.helpdesk.api.config;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índices que o IndexBootstrap não conseguiu criar (nome → erro), junto com
+ * os que foram criados
+ */
+public class IndexBootstrapException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<String> created;
+
+	private final Map<String, String> failures;
+
+	public IndexBootstrapException(List<String> created, Map<String, String> failures) {
+		super("Indexes not created: " + failures.keySet());
+		this.created = created;
+		this.failures = failures;
+	}
+
+	public List<String> getCreated() {
+		return created;
+	}
+
+	public Map<String, String> getFailures() {
+		return failures;
+	}
+}
@@ -0,0 +1,53 @@
+package com.fseiji.helpdesk.api.config;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import com.fseiji.helpdesk.api.service.TicketImageService;
+
+/**
+ * Move para o GridFS, depois que a aplicação subiu, as imagens ainda gravadas
+ * dentro dos tickets. Roda em uma thread própria para não atrasar a subida;
+ * done() completa com a quantidade de tickets migrados
+ */
+@Component
+public class InlineImageMigration implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Logger log = LoggerFactory.getLogger(InlineImageMigration.class);
+
+	@Autowired
+	private TicketImageService ticketImageService;
+
+	private final CompletableFuture<Integer> done = new CompletableFuture<Integer>();
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		Thread thread = new Thread(this::migrate, "inline-image-migration");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// tickets migrados, ou a falha que interrompeu a migração
+	public CompletableFuture<Integer> done() {
+		return this.done;
+	}
+
+	void migrate() {
+		try {
+			int migrated = this.ticketImageService.migrateInlineImages();
+			if (migrated > 0) {
+				log.info("Inline images moved to GridFS: {}", migrated);
+			}
+			this.done.complete(migrated);
+		} catch (RuntimeException e) {
+			log.error("Inline image migration failed", e);
+			this.done.completeExceptionally(e);
+		}
+	}
+}
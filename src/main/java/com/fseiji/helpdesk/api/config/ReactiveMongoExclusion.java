@@ -0,0 +1,48 @@
+package com.fseiji.helpdesk.api.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Fora do modo reativo (spring.main.web-application-type=reactive) exclui a
+ * autoconfiguração reativa do MongoDB, que só depende das classes no
+ * classpath: os nós em modo servlet não abrem um segundo MongoClient nem criam
+ * o ReactiveMongoTemplate e os repositórios reativos
+ */
+public class ReactiveMongoExclusion implements EnvironmentPostProcessor {
+
+	private static final String EXCLUDE = "spring.autoconfigure.exclude";
+
+	private static final List<String> REACTIVE_MONGO = Arrays.asList(MongoReactiveAutoConfiguration.class.getName(),
+			MongoReactiveDataAutoConfiguration.class.getName(),
+			MongoReactiveRepositoriesAutoConfiguration.class.getName());
+
+	@Override
+	public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+		Binder binder = Binder.get(environment);
+		// a propriedade só é aplicada ao SpringApplication depois dos EnvironmentPostProcessor
+		WebApplicationType type = binder.bind("spring.main.web-application-type", WebApplicationType.class)
+				.orElse(application.getWebApplicationType());
+		if (type == WebApplicationType.REACTIVE) {
+			return;
+		}
+		// mantém as exclusões já configuradas
+		List<String> exclude = new ArrayList<String>(binder.bind(EXCLUDE, String[].class).map(Arrays::asList)
+				.orElse(Collections.<String>emptyList()));
+		exclude.addAll(REACTIVE_MONGO);
+		environment.getPropertySources().addFirst(new MapPropertySource("reactiveMongoExclusion",
+				Collections.<String, Object>singletonMap(EXCLUDE, String.join(",", exclude))));
+	}
+}
@@ -0,0 +1,54 @@
+package com.fseiji.helpdesk.api.config;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+
+/**
+ * Preenche, depois que a aplicação subiu, os trigramas do título dos tickets
+ * gravados antes do índice de título. Roda em uma thread própria para não
+ * atrasar a subida; enquanto isso a busca por título usa a regex. done()
+ * completa com a quantidade de tickets preenchidos
+ */
+@Component
+public class TitleGramsBackfill implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Logger log = LoggerFactory.getLogger(TitleGramsBackfill.class);
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	private final CompletableFuture<Integer> done = new CompletableFuture<Integer>();
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		Thread thread = new Thread(this::fill, "title-grams-backfill");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// tickets preenchidos, ou a falha que interrompeu o preenchimento
+	public CompletableFuture<Integer> done() {
+		return this.done;
+	}
+
+	void fill() {
+		try {
+			int filled = this.ticketRepository.fillTitleGrams();
+			if (filled > 0) {
+				log.info("Title trigrams filled: {}", filled);
+			}
+			this.done.complete(filled);
+		} catch (RuntimeException e) {
+			log.error("Title trigrams backfill failed", e);
+			this.done.completeExceptionally(e);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.fseiji.helpdesk.api.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fseiji.helpdesk.api.dto.CursorPage;
+import com.fseiji.helpdesk.api.dto.Summary;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.enums.ProfileEnum;
+import com.fseiji.helpdesk.api.response.Response;
+import com.fseiji.helpdesk.api.security.model.RequestUser;
+import com.fseiji.helpdesk.api.service.ReactiveTicketService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Endpoints de leitura de ticket no modo reativo
+ * (spring.main.web-application-type=reactive), com os mesmos caminhos e
+ * respostas do TicketController. As escritas continuam nos nós em modo servlet
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequestMapping("/api/ticket")
+@CrossOrigin(origins = "*")
+public class ReactiveTicketController {
+
+	@Autowired
+	private ReactiveTicketService ticketService;
+
+	@GetMapping(value = "/{id}")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public Mono<ResponseEntity<Response<Ticket>>> findById(@PathVariable("id") String id) {
+		return this.ticketService.findDetail(id).map(ticket -> {
+			Response<Ticket> response = new Response<Ticket>();
+			response.setData(ticket);
+			return ResponseEntity.ok().body(response);
+		}).switchIfEmpty(Mono.fromSupplier(() -> {
+			Response<Ticket> response = new Response<Ticket>();
+			response.getErrors().add("Register not found id: " + id);
+			return ResponseEntity.badRequest().body(response);
+		}));
+	}
+
+	// sempre com o total exato (o parâmetro total do modo servlet não é suportado aqui)
+	@GetMapping(value = "{page}/{count}")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public Mono<ResponseEntity<Response<Page<TicketSummaryView>>>> findAll(@PathVariable("page") int page,
+			@PathVariable("count") int count, RequestUser userRequest) {
+		Mono<Page<TicketSummaryView>> tickets = Mono.empty();
+		if (userRequest.getProfile().equals(ProfileEnum.ROLE_TECHNICAN)) {
+			tickets = this.ticketService.listTicket(page, count);
+		} else if (userRequest.getProfile().equals(ProfileEnum.ROLE_CUSTOMER)) {
+			tickets = this.ticketService.findByCurrentUser(page, count, userRequest.getId());
+		}
+		return tickets.map(data -> {
+			Response<Page<TicketSummaryView>> response = new Response<Page<TicketSummaryView>>();
+			response.setData(data);
+			return ResponseEntity.ok(response);
+		});
+	}
+
+	@GetMapping(value = "/search/{count}")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public Mono<ResponseEntity<Response<TicketSearchPage>>> search(RequestUser userRequest,
+			@PathVariable("count") int count, @RequestParam(value = "text") String text,
+			@RequestParam(value = "status", defaultValue = "") String status,
+			@RequestParam(value = "priority", defaultValue = "") String priority,
+			@RequestParam(value = "assigned", defaultValue = "false") boolean assigned,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "facets", defaultValue = "false") boolean facets) {
+		Response<TicketSearchPage> response = new Response<TicketSearchPage>();
+		if (text.trim().isEmpty()) {
+			response.getErrors().add("Text no information");
+			return Mono.just(ResponseEntity.badRequest().body(response));
+		}
+		if (count < 1 || count > CursorPage.MAX_COUNT) {
+			response.getErrors().add("Count must be between 1 and " + CursorPage.MAX_COUNT);
+			return Mono.just(ResponseEntity.badRequest().body(response));
+		}
+		Mono<TicketSearchPage> page;
+		try {
+			TicketFilter filter = scopeFilter(userRequest, new TicketFilter("", status, priority), assigned);
+			page = this.ticketService.search(text, cursor, count, filter, facets);
+		} catch (IllegalArgumentException e) {
+			// cursor, status ou prioridade inválidos
+			response.getErrors().add(e.getMessage());
+			return Mono.just(ResponseEntity.badRequest().body(response));
+		}
+		return page.map(data -> {
+			response.setData(data);
+			return ResponseEntity.ok(response);
+		}).onErrorResume(IllegalArgumentException.class, e -> {
+			response.getErrors().add(e.getMessage());
+			return Mono.just(ResponseEntity.badRequest().body(response));
+		});
+	}
+
+	// restringe os filtros ao que o perfil do usuário pode ver, como no TicketController
+	private TicketFilter scopeFilter(RequestUser userRequest, TicketFilter filter, boolean assigned) {
+		if (userRequest.getProfile().equals(ProfileEnum.ROLE_TECHNICAN)) {
+			if (assigned) {
+				filter.setAssignedUserId(userRequest.getId());
+			}
+		} else if (userRequest.getProfile().equals(ProfileEnum.ROLE_CUSTOMER)) {
+			filter.setUserId(userRequest.getId());
+		}
+		return filter;
+	}
+
+	@GetMapping(value = "/summary")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public Mono<ResponseEntity<Response<Summary>>> findSummary() {
+		return this.ticketService.findSummary().map(summary -> {
+			Response<Summary> response = new Response<Summary>();
+			response.setData(summary);
+			return ResponseEntity.ok(response);
+		});
+	}
+}
@@ -1,15 +1,27 @@
 package com.fseiji.helpdesk.api.controller;
 
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
-
-import javax.servlet.http.HttpServletRequest;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
@@ -21,77 +33,203 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fseiji.helpdesk.api.dto.CursorPage;
 import com.fseiji.helpdesk.api.dto.Summary;
+import com.fseiji.helpdesk.api.dto.TicketBulkStatus;
+import com.fseiji.helpdesk.api.dto.TicketExport;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketImportSummary;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketStatusResult;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
 import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.entity.Sequence;
 import com.fseiji.helpdesk.api.entity.Ticket;
-import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.ExportFormatEnum;
 import com.fseiji.helpdesk.api.enums.ProfileEnum;
 import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.enums.TotalEnum;
 import com.fseiji.helpdesk.api.response.Response;
-import com.fseiji.helpdesk.api.security.jwt.JwtTokenUtil;
+import com.fseiji.helpdesk.api.security.model.RequestUser;
+import com.fseiji.helpdesk.api.service.IdempotencyKeyInProgressException;
+import com.fseiji.helpdesk.api.service.IdempotencyKeyMismatchException;
+import com.fseiji.helpdesk.api.service.IdempotencyService;
+import com.fseiji.helpdesk.api.service.SequenceService;
+import com.fseiji.helpdesk.api.service.TicketExportService;
+import com.fseiji.helpdesk.api.service.TicketImageService;
+import com.fseiji.helpdesk.api.service.TicketImportService;
+import com.fseiji.helpdesk.api.service.ThumbnailService;
 import com.fseiji.helpdesk.api.service.TicketService;
-import com.fseiji.helpdesk.api.service.UserService;
+import com.fseiji.helpdesk.api.util.TicketValidation;
 
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @RequestMapping("/api/ticket")
 @CrossOrigin(origins = "*")
 public class TicketController {
 
+	private static final Logger log = LoggerFactory.getLogger(TicketController.class);
+
+	// quantidade máxima de tickets em uma mudança de status em lote
+	private static final int BULK_MAX_SIZE = 1000;
+
+	private static final String NDJSON = "application/x-ndjson";
+
+	private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+	private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+	private static final int IDEMPOTENCY_KEY_MAX_LENGTH = 255;
+
+	// tentativas de associar o ticket criado à chave
+	private static final int COMPLETE_ATTEMPTS = 2;
+
 	@Autowired
 	private TicketService ticketService;
 	@Autowired
-	protected JwtTokenUtil jwtTokenUtil;
+	private SequenceService sequenceService;
+	@Autowired
+	private TicketImageService ticketImageService;
+	@Autowired
+	private ThumbnailService thumbnailService;
 	@Autowired
-	private UserService userService;
+	private TicketImportService ticketImportService;
+	@Autowired
+	private TicketExportService ticketExportService;
+	@Autowired
+	private IdempotencyService idempotencyService;
 
 	@PostMapping()
 	@PreAuthorize("hasAnyRole('CUSTOMER')")
-	public ResponseEntity<Response<Ticket>> createOrUpdate(HttpServletRequest request, @RequestBody Ticket ticket,
-			BindingResult result) {
+	public ResponseEntity<Response<Ticket>> createOrUpdate(RequestUser userRequest, @RequestBody Ticket ticket,
+			BindingResult result, @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
 		Response<Ticket> response = new Response<Ticket>();
+		boolean reserved = false;
+		boolean saved = false;
 		try {
 			validateCreateTicket(ticket, result);
+			validateIdempotencyKey(idempotencyKey, result);
 			if (result.hasErrors()) {
 				result.getAllErrors().forEach(error -> response.getErrors().add(error.getDefaultMessage()));
 				return ResponseEntity.badRequest().body(response);
 			}
+			String fingerprint = null;
+			if (idempotencyKey != null) {
+				// repetição de uma requisição já concluída: devolve o ticket criado na primeira vez
+				fingerprint = fingerprint(ticket);
+				String ticketId = this.idempotencyService.reserve(userRequest.getId(), idempotencyKey, fingerprint);
+				if (ticketId != null) {
+					Ticket ticketOriginal = this.ticketService.findById(ticketId).orElse(null);
+					if (ticketOriginal == null) {
+						response.getErrors().add("Register not found id: " + ticketId);
+						return ResponseEntity.badRequest().body(response);
+					}
+					response.setData(ticketOriginal);
+					return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED, "true").body(response);
+				}
+				reserved = true;
+			}
 			ticket.setStatus(StatusEnum.getStatus("New"));
-			ticket.setUser(userFromRequest(request));
+			ticket.setUser(userRequest.toUser());
 			ticket.setDate(new Date());
 			ticket.setNumber(generateNumber());
+			// a imagem é enviada depois, em POST /api/ticket/{id}/image
+			ticket.setImageId(null);
 			Ticket ticketPersisted = this.ticketService.createOrUpdate(ticket);
+			saved = true;
+			if (reserved) {
+				complete(userRequest.getId(), idempotencyKey, fingerprint, ticketPersisted.getId());
+			}
 			response.setData(ticketPersisted);
+		} catch (IdempotencyKeyInProgressException e) {
+			// a mesma chave ainda está sendo processada por outra requisição
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+		} catch (IdempotencyKeyMismatchException e) {
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(response);
 		} catch (Exception e) {
 			response.getErrors().add(e.getMessage());
 			return ResponseEntity.badRequest().body(response);
+		} finally {
+			// a reserva sem ticket associado seguraria a chave até o lock-timeout; depois que o ticket
+			// foi gravado ela não é liberada, senão uma nova tentativa criaria outro ticket
+			if (reserved && !saved) {
+				this.idempotencyService.release(userRequest.getId(), idempotencyKey);
+			}
 		}
 		return ResponseEntity.ok().body(response);
 	}
 
-	private void validateCreateTicket(Ticket ticket, BindingResult result) {
-		if (ticket.getTitle() == null) {
-			result.addError(new ObjectError("Ticket", "Title no information"));
-			return;
+	// o ticket já foi criado: uma falha aqui não é devolvida ao cliente. Tenta mais uma vez e, se
+	// falhar de novo, a reserva fica até o lock-timeout, bloqueando repetições da chave nesse tempo
+	private void complete(String userId, String idempotencyKey, String fingerprint, String ticketId) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				this.idempotencyService.complete(userId, idempotencyKey, fingerprint, ticketId);
+				return;
+			} catch (RuntimeException e) {
+				if (attempt == COMPLETE_ATTEMPTS) {
+					log.error("Failed to complete {} for ticket {}", IDEMPOTENCY_KEY, ticketId, e);
+					return;
+				}
+			}
+		}
+	}
+
+	// hash dos campos do corpo usados na criação; os demais são definidos pelo servidor
+	private String fingerprint(Ticket ticket) {
+		String fields = ticket.getTitle() + "\0" + ticket.getDescription() + "\0" + ticket.getPriority();
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(messageDigest.digest(fields.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
 		}
 	}
 
-	private User userFromRequest(HttpServletRequest request) {
-		String token = request.getHeader("Authorization");
-		String email = this.jwtTokenUtil.getUsernameFromToken(token);
-		return this.userService.findByEmail(email);
+	private void validateIdempotencyKey(String idempotencyKey, BindingResult result) {
+		if (idempotencyKey != null && (idempotencyKey.isEmpty() || idempotencyKey.length() > IDEMPOTENCY_KEY_MAX_LENGTH)) {
+			result.addError(new ObjectError("Ticket", "Invalid " + IDEMPOTENCY_KEY));
+		}
+	}
+
+	// importação de tickets de outros sistemas: um ticket JSON por linha, lido como stream
+	@PostMapping(value = "/import", consumes = NDJSON)
+	@PreAuthorize("hasAnyRole('ADMIN')")
+	public ResponseEntity<Response<TicketImportSummary>> importTickets(RequestUser userRequest, InputStream content) {
+		Response<TicketImportSummary> response = new Response<TicketImportSummary>();
+		try {
+			response.setData(this.ticketImportService.importTickets(content, userRequest.toUser()));
+		} catch (Exception e) {
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.badRequest().body(response);
+		}
+		return ResponseEntity.ok(response);
+	}
+
+	private void validateCreateTicket(Ticket ticket, BindingResult result) {
+		String error = TicketValidation.validateCreate(ticket);
+		if (error != null) {
+			result.addError(new ObjectError("Ticket", error));
+		}
 	}
 
 	private Integer generateNumber() {
-		Random random = new Random();
-		return random.nextInt(9999);
+		return (int) this.sequenceService.next(Sequence.TICKET_NUMBER);
 	}
 
 	@PutMapping()
 	@PreAuthorize("hasAnyRole('CUSTOMER')")
-	public ResponseEntity<Response<Ticket>> update(HttpServletRequest request, @RequestBody Ticket ticket,
+	public ResponseEntity<Response<Ticket>> update(@RequestBody Ticket ticket,
 			BindingResult result) {
 		Response<Ticket> response = new Response<Ticket>();
 		try {
@@ -100,16 +238,26 @@ public class TicketController {
 				result.getAllErrors().forEach(error -> response.getErrors().add(error.getDefaultMessage()));
 				return ResponseEntity.badRequest().body(response);
 			}
+			// o save regrava o documento inteiro: uma imagem ainda inline seria perdida
+			this.ticketImageService.migrateInlineImage(ticket.getId());
 			Ticket ticketCurrent = this.ticketService.findById(ticket.getId()).get();
 			ticket.setStatus(ticketCurrent.getStatus());
 			ticket.setUser(ticketCurrent.getUser());
 			ticket.setDate(ticketCurrent.getDate());
 			ticket.setNumber(ticketCurrent.getNumber());
+			ticket.setImageId(ticketCurrent.getImageId());
 			if (ticketCurrent.getAssignedUser() != null) {
 				ticket.setAssignedUser(ticketCurrent.getAssignedUser());
 			}
+			// sem a versão lida pelo cliente, grava sobre a atual (comportamento anterior)
+			if (ticket.getVersion() == null) {
+				ticket.setVersion(ticketCurrent.getVersion());
+			}
 			Ticket ticketPersisted = this.ticketService.createOrUpdate(ticket);
 			response.setData(ticketPersisted);
+		} catch (OptimisticLockingFailureException e) {
+			response.getErrors().add("Ticket was changed by another user, reload and try again");
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
 		} catch (Exception e) {
 			response.getErrors().add(e.getMessage());
 			return ResponseEntity.badRequest().body(response);
@@ -132,23 +280,78 @@ public class TicketController {
 	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
 	public ResponseEntity<Response<Ticket>> findById(@PathVariable("id") String id) {
 		Response<Ticket> response = new Response<Ticket>();
-		Ticket ticket = this.ticketService.findById(id).get();
+		Ticket ticket = this.ticketService.findDetail(id);
 		if (ticket == null) {
 			response.getErrors().add("Register not found id: " + id);
 			return ResponseEntity.badRequest().body(response);
 		}
-		List<ChangeStatus> changes = new ArrayList<ChangeStatus>();
-		Iterable<ChangeStatus> changesCurrent = this.ticketService.listChangeStatus(ticket.getId());
-		for (Iterator<ChangeStatus> iterator = changesCurrent.iterator(); iterator.hasNext();) {
-			ChangeStatus changeStatus = iterator.next();
-			changeStatus.setTicket(null);
-			changes.add(changeStatus);
-		}
-		ticket.setChanges(changes);
 		response.setData(ticket);
 		return ResponseEntity.ok().body(response);
 	}
 
+	@PostMapping(value = "/{id}/image")
+	@PreAuthorize("hasAnyRole('CUSTOMER')")
+	public ResponseEntity<Response<String>> uploadImage(@PathVariable("id") String id,
+			@RequestParam("file") MultipartFile file) {
+		Response<String> response = new Response<String>();
+		if (file.isEmpty() || file.getContentType() == null || !file.getContentType().startsWith("image/")) {
+			response.getErrors().add("Image no information");
+			return ResponseEntity.badRequest().body(response);
+		}
+		try (InputStream content = file.getInputStream()) {
+			String imageId = this.ticketImageService.storeImage(id, content, file.getOriginalFilename(),
+					file.getContentType());
+			if (imageId == null) {
+				response.getErrors().add("Register not found id: " + id);
+				return ResponseEntity.badRequest().body(response);
+			}
+			response.setData(imageId);
+		} catch (Exception e) {
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.badRequest().body(response);
+		}
+		return ResponseEntity.ok(response);
+	}
+
+	// devolve o conteúdo direto do GridFS; Range (206) é tratado pelo Spring para corpos do tipo Resource
+	@GetMapping(value = "/{id}/image")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public ResponseEntity<Resource> findImage(@PathVariable("id") String id, WebRequest request) {
+		Ticket ticket = this.ticketService.findById(id).orElse(null);
+		if (ticket == null || ticket.getImageId() == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return streamImage(this.ticketImageService.findImage(ticket.getImageId()), request);
+	}
+
+	@GetMapping(value = "/{id}/thumbnail")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public ResponseEntity<Resource> findThumbnail(@PathVariable("id") String id, WebRequest request) {
+		Ticket ticket = this.ticketService.findById(id).orElse(null);
+		if (ticket == null || ticket.getImageId() == null) {
+			return ResponseEntity.notFound().build();
+		}
+		GridFsResource thumbnail = this.thumbnailService.findThumbnail(ticket.getImageId());
+		if (thumbnail == null) {
+			// ainda não gerada (ou descartada com a fila cheia): pede de novo e o cliente tenta depois
+			this.thumbnailService.generate(ticket.getImageId());
+		}
+		return streamImage(thumbnail, request);
+	}
+
+	private ResponseEntity<Resource> streamImage(GridFsResource image, WebRequest request) {
+		if (image == null) {
+			return ResponseEntity.notFound().build();
+		}
+		// cada arquivo gravado no GridFS é imutável, então o id do arquivo identifica o conteúdo
+		String etag = "\"" + image.getGridFSFile().getObjectId().toHexString() + "\"";
+		if (request.checkNotModified(etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+		}
+		return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate())
+				.contentType(MediaType.parseMediaType(image.getContentType())).body(image);
+	}
+
 	@DeleteMapping(value = "/{id}")
 	@PreAuthorize("hasAnyRole('CUSTOMER')")
 	public ResponseEntity<Response<String>> delete(@PathVariable("id") String id) {
@@ -164,14 +367,16 @@ public class TicketController {
 
 	@GetMapping(value = "{page}/{count}")
 	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
-	public ResponseEntity<Response<Page<Ticket>>> findAll( 
+	public ResponseEntity<Response<Slice<TicketSummaryView>>> findAll( 
 			@PathVariable("page") int page,
 			@PathVariable("count") int count,
-			HttpServletRequest request) {
-		Response<Page<Ticket>> response = new Response<Page<Ticket>>();
-		Page<Ticket> tickets = null;
-		User userRequest = userFromRequest(request);
-		if (userRequest.getProfile().equals(ProfileEnum.ROLE_TECHNICAN)) {
+			RequestUser userRequest,
+			@RequestParam(value = "total", defaultValue = "EXACT") TotalEnum total) {
+		Response<Slice<TicketSummaryView>> response = new Response<Slice<TicketSummaryView>>();
+		Slice<TicketSummaryView> tickets = null;
+		if (total != TotalEnum.EXACT) {
+			tickets = findWithoutCount(page, count, scopeFilter(userRequest, new TicketFilter(), false), total);
+		} else if (userRequest.getProfile().equals(ProfileEnum.ROLE_TECHNICAN)) {
 			tickets = this.ticketService.listTicket(page, count);
 		} else if (userRequest.getProfile().equals(ProfileEnum.ROLE_CUSTOMER)) {
 			tickets = this.ticketService.findByCurrentUser(page, count, userRequest.getId());
@@ -182,40 +387,165 @@ public class TicketController {
 
 	@GetMapping(value = "/{page}/{count}/{number}/{title}/{status}/{priority}/{assigned}")
 	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
-	public ResponseEntity<Response<Page<Ticket>>> findByParam(HttpServletRequest request,
+	public ResponseEntity<Response<Slice<TicketSummaryView>>> findByParam(RequestUser userRequest,
 			@PathVariable("page") int page, @PathVariable("count") int count, @PathVariable("number") Integer number,
 			@PathVariable("title") String title, @PathVariable("status") String status,
 			@PathVariable("priority") String priority, 
-			@PathVariable("assigned") boolean assigned) {
+			@PathVariable("assigned") boolean assigned,
+			@RequestParam(value = "total", defaultValue = "EXACT") TotalEnum total) {
 
 		title = title.equals("uninformed") ? "" : title;
 		status = status.equals("uninformed") ? "" : status;
 		priority = priority.equals("uninformed") ? "" : priority;
-		Response<Page<Ticket>> response = new Response<Page<Ticket>>();
-		Page<Ticket> tickets = null;
-		if (number > 0) {
-			tickets = this.ticketService.findByNumber(page, count, number);
-		} else {
-			User userRequest = userFromRequest(request);
-			if (userRequest.getProfile().equals(ProfileEnum.ROLE_TECHNICAN)) {
-				if (assigned) {
-					tickets = this.ticketService.findByParametersAndAssignedUser(page, count, title, status, priority,
+		Response<Slice<TicketSummaryView>> response = new Response<Slice<TicketSummaryView>>();
+		Slice<TicketSummaryView> tickets = null;
+		try {
+			if (number > 0) {
+				tickets = this.ticketService.findByNumber(page, count, number);
+			} else if (total != TotalEnum.EXACT) {
+				TicketFilter filter = scopeFilter(userRequest, new TicketFilter(title, status, priority), assigned);
+				tickets = findWithoutCount(page, count, filter, total);
+			} else {
+				if (userRequest.getProfile().equals(ProfileEnum.ROLE_TECHNICAN)) {
+					if (assigned) {
+						tickets = this.ticketService.findByParametersAndAssignedUser(page, count, title, status,
+								priority, userRequest.getId());
+					} else {
+						tickets = this.ticketService.findByParameters(page, count, title, status, priority);
+					}
+				} else if (userRequest.getProfile().equals(ProfileEnum.ROLE_CUSTOMER)) {
+					tickets = this.ticketService.findByParametersAndCurrentUser(page, count, title, status, priority,
 							userRequest.getId());
-				} else {
-					tickets = this.ticketService.findByParameters(page, count, title, status, priority);
 				}
-			} else if (userRequest.getProfile().equals(ProfileEnum.ROLE_CUSTOMER)) {
-				tickets = this.ticketService.findByParametersAndCurrentUser(page, count, title, status, priority,
-						userRequest.getId());
 			}
+		} catch (IllegalArgumentException e) {
+			// status ou prioridade que não existem
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.badRequest().body(response);
 		}
 		response.setData(tickets);
 		return ResponseEntity.ok(response);
 	}
 
+	// exportação com os mesmos filtros de findByParam, escrita direto do cursor do MongoDB;
+	// se o cliente desconectar, a escrita falha e o cursor é fechado
+	@GetMapping(value = "/export/{title}/{status}/{priority}/{assigned}")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public ResponseEntity<?> export(RequestUser userRequest, @PathVariable("title") String title,
+			@PathVariable("status") String status, @PathVariable("priority") String priority,
+			@PathVariable("assigned") boolean assigned,
+			@RequestParam(value = "format", defaultValue = "NDJSON") ExportFormatEnum format) {
+		title = title.equals("uninformed") ? "" : title;
+		status = status.equals("uninformed") ? "" : status;
+		priority = priority.equals("uninformed") ? "" : priority;
+		CloseableIterator<TicketExport> tickets;
+		try {
+			tickets = this.ticketService
+					.streamByFilter(scopeFilter(userRequest, new TicketFilter(title, status, priority), assigned));
+		} catch (IllegalArgumentException e) {
+			// status ou prioridade que não existem
+			Response<String> response = new Response<String>();
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.badRequest().body(response);
+		}
+		StreamingResponseBody body = content -> this.ticketExportService.write(tickets, format, content);
+		boolean csv = format == ExportFormatEnum.CSV;
+		return ResponseEntity.ok()
+				.contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.valueOf(NDJSON))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=tickets." + (csv ? "csv" : "ndjson"))
+				.body(body);
+	}
+
+	// listagens sem o count exato: Slice (NONE) ou Page com total aproximado (APPROXIMATE)
+	private Slice<TicketSummaryView> findWithoutCount(int page, int count, TicketFilter filter, TotalEnum total) {
+		if (total == TotalEnum.APPROXIMATE) {
+			return this.ticketService.findWithApproximateTotal(page, count, filter);
+		}
+		return this.ticketService.findSlice(page, count, filter);
+	}
+
+	// restringe os filtros ao que o perfil do usuário pode ver, como em findAll/findByParam
+	private TicketFilter scopeFilter(RequestUser userRequest, TicketFilter filter, boolean assigned) {
+		if (userRequest.getProfile().equals(ProfileEnum.ROLE_TECHNICAN)) {
+			if (assigned) {
+				filter.setAssignedUserId(userRequest.getId());
+			}
+		} else if (userRequest.getProfile().equals(ProfileEnum.ROLE_CUSTOMER)) {
+			filter.setUserId(userRequest.getId());
+		}
+		return filter;
+	}
+
+	// paginação por cursor: o tempo de resposta não cresce com a profundidade da página
+	@GetMapping(value = "/cursor/{count}")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public ResponseEntity<Response<CursorPage<TicketSummaryView>>> findAllByCursor(RequestUser userRequest,
+			@PathVariable("count") int count, @RequestParam(value = "cursor", required = false) String cursor) {
+		return findByCursor(userRequest, count, cursor, new TicketFilter(), false);
+	}
+
+	@GetMapping(value = "/cursor/{count}/{title}/{status}/{priority}/{assigned}")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public ResponseEntity<Response<CursorPage<TicketSummaryView>>> findByParamByCursor(RequestUser userRequest,
+			@PathVariable("count") int count, @PathVariable("title") String title,
+			@PathVariable("status") String status, @PathVariable("priority") String priority,
+			@PathVariable("assigned") boolean assigned,
+			@RequestParam(value = "cursor", required = false) String cursor) {
+		title = title.equals("uninformed") ? "" : title;
+		status = status.equals("uninformed") ? "" : status;
+		priority = priority.equals("uninformed") ? "" : priority;
+		return findByCursor(userRequest, count, cursor, new TicketFilter(title, status, priority), assigned);
+	}
+
+	private ResponseEntity<Response<CursorPage<TicketSummaryView>>> findByCursor(RequestUser userRequest, int count,
+			String cursor, TicketFilter filter, boolean assigned) {
+		Response<CursorPage<TicketSummaryView>> response = new Response<CursorPage<TicketSummaryView>>();
+		if (count < 1 || count > CursorPage.MAX_COUNT) {
+			response.getErrors().add("Count must be between 1 and " + CursorPage.MAX_COUNT);
+			return ResponseEntity.badRequest().body(response);
+		}
+		try {
+			response.setData(this.ticketService.listTicketAfter(cursor, count, scopeFilter(userRequest, filter, assigned)));
+		} catch (IllegalArgumentException e) {
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.badRequest().body(response);
+		}
+		return ResponseEntity.ok(response);
+	}
+
+	// busca por palavras do título e da descrição, ordenada por relevância e paginada por cursor;
+	// com facets=true devolve também as contagens por status e prioridade do filtro
+	@GetMapping(value = "/search/{count}")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public ResponseEntity<Response<TicketSearchPage>> search(RequestUser userRequest,
+			@PathVariable("count") int count, @RequestParam(value = "text") String text,
+			@RequestParam(value = "status", defaultValue = "") String status,
+			@RequestParam(value = "priority", defaultValue = "") String priority,
+			@RequestParam(value = "assigned", defaultValue = "false") boolean assigned,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "facets", defaultValue = "false") boolean facets) {
+		Response<TicketSearchPage> response = new Response<TicketSearchPage>();
+		if (text.trim().isEmpty()) {
+			response.getErrors().add("Text no information");
+			return ResponseEntity.badRequest().body(response);
+		}
+		if (count < 1 || count > CursorPage.MAX_COUNT) {
+			response.getErrors().add("Count must be between 1 and " + CursorPage.MAX_COUNT);
+			return ResponseEntity.badRequest().body(response);
+		}
+		try {
+			TicketFilter filter = scopeFilter(userRequest, new TicketFilter("", status, priority), assigned);
+			response.setData(this.ticketService.search(text, cursor, count, filter, facets));
+		} catch (IllegalArgumentException e) {
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.badRequest().body(response);
+		}
+		return ResponseEntity.ok(response);
+	}
+
 	@PutMapping(value = "/{id}/{status}")
 	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
-	public ResponseEntity<Response<Ticket>> changeStatus(HttpServletRequest request, @RequestBody Ticket ticket,
+	public ResponseEntity<Response<Ticket>> changeStatus(RequestUser userRequest, @RequestBody Ticket ticket,
 			BindingResult result, @PathVariable("id") String id, @PathVariable("status") String status) {
 		Response<Ticket> response = new Response<Ticket>();
 		try {
@@ -224,19 +554,46 @@ public class TicketController {
 				result.getAllErrors().forEach(error -> response.getErrors().add(error.getDefaultMessage()));
 				return ResponseEntity.badRequest().body(response);
 			}
-			Ticket ticketCurrent = this.ticketService.findById(id).get();
-			ticketCurrent.setStatus(StatusEnum.getStatus(status));
-			if (status.equals("Assigned")) {
-				ticketCurrent.setAssignedUser(userFromRequest(request));
+			// o status enviado no corpo é o que o usuário estava vendo: a mudança só é aplicada se ainda for o atual
+			Ticket ticketPersisted = this.ticketService.changeStatus(id, ticket.getStatus(), StatusEnum.getStatus(status),
+					status.equals("Assigned") ? userRequest.toUser() : null);
+			if (ticketPersisted == null) {
+				response.getErrors().add("Register not found id: " + id);
+				return ResponseEntity.badRequest().body(response);
 			}
-			Ticket ticketPersisted = this.ticketService.createOrUpdate(ticketCurrent);
 			ChangeStatus changeStatus = new ChangeStatus();
-			changeStatus.setUserChange(userFromRequest(request));
+			changeStatus.setUserChange(userRequest.toUser());
 			changeStatus.setDateChangeStatus(new Date());
 			changeStatus.setStatus(StatusEnum.getStatus(status));
 			changeStatus.setTicket(ticketPersisted);
 			this.ticketService.createChangeStatus(changeStatus);
 			response.setData(ticketPersisted);
+		} catch (OptimisticLockingFailureException e) {
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+		} catch (Exception e) {
+			response.getErrors().add(e.getMessage());
+			return ResponseEntity.badRequest().body(response);
+		}
+		return ResponseEntity.ok(response);
+	}
+
+	@PutMapping(value = "/bulk/status")
+	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
+	public ResponseEntity<Response<List<TicketStatusResult>>> changeStatusBulk(RequestUser userRequest,
+			@RequestBody TicketBulkStatus bulkStatus, BindingResult result) {
+		Response<List<TicketStatusResult>> response = new Response<List<TicketStatusResult>>();
+		try {
+			validateChangeStatusBulk(bulkStatus, result);
+			if (result.hasErrors()) {
+				result.getAllErrors().forEach(error -> response.getErrors().add(error.getDefaultMessage()));
+				return ResponseEntity.badRequest().body(response);
+			}
+			StatusEnum status = StatusEnum.valueOf(bulkStatus.getStatus().toUpperCase());
+			response.setData(this.ticketService.changeStatus(bulkStatus.getIds(), status, userRequest.toUser()));
+		} catch (IllegalArgumentException e) {
+			response.getErrors().add("Invalid status: " + bulkStatus.getStatus());
+			return ResponseEntity.badRequest().body(response);
 		} catch (Exception e) {
 			response.getErrors().add(e.getMessage());
 			return ResponseEntity.badRequest().body(response);
@@ -244,6 +601,18 @@ public class TicketController {
 		return ResponseEntity.ok(response);
 	}
 
+	private void validateChangeStatusBulk(TicketBulkStatus bulkStatus, BindingResult result) {
+		if (bulkStatus.getIds() == null || bulkStatus.getIds().isEmpty()) {
+			result.getAllErrors().add(new ObjectError("Ticket", "Ids no information"));
+		} else if (bulkStatus.getIds().size() > BULK_MAX_SIZE) {
+			result.getAllErrors().add(new ObjectError("Ticket", "Too many ids, maximum is " + BULK_MAX_SIZE));
+		}
+
+		if (bulkStatus.getStatus() == null || bulkStatus.getStatus().isEmpty()) {
+			result.getAllErrors().add(new ObjectError("Ticket", "Status no information"));
+		}
+	}
+
 	private void validateChangeStatus(String id, String status, BindingResult result) {
 		if (id == null || id.isEmpty()) {
 			result.getAllErrors().add(new ObjectError("Ticket", "Id no information"));
@@ -258,39 +627,16 @@ public class TicketController {
 	@PreAuthorize("hasAnyRole('CUSTOMER','TECHNICAN')")
 	public ResponseEntity<Response<Summary>> findSummary() {
 		Response<Summary> response = new Response<Summary>();
-		Summary summary = new Summary();
-		int amountNew = 0;
-		int amountResolved = 0;
-		int amountApproved = 0;
-		int amountDisapproved = 0;
-		int amountAssigned = 0;
-		int amountClosed = 0;
-
-		Iterable<Ticket> tickets = this.ticketService.findAll();
-		if (tickets != null) {
-			for (Iterator<Ticket> iterator = tickets.iterator(); iterator.hasNext();) {
-				Ticket ticket = (Ticket) iterator.next();
-				if (ticket.getStatus().equals(StatusEnum.NEW)) {
-					amountNew++;
-				} else if (ticket.getStatus().equals(StatusEnum.RESOLVED)) {
-					amountResolved++;
-				} else if (ticket.getStatus().equals(StatusEnum.APPROVED)) {
-					amountApproved++;
-				} else if (ticket.getStatus().equals(StatusEnum.DISAPPROVED)) {
-					amountDisapproved++;
-				} else if (ticket.getStatus().equals(StatusEnum.ASSIGNED)) {
-					amountAssigned++;
-				} else if (ticket.getStatus().equals(StatusEnum.CLOSED)) {
-					amountClosed++;
-				}
-			}
-			summary.setAmountNew(amountNew);
-			summary.setAmountResolved(amountResolved);
-			summary.setAmountApproved(amountApproved);
-			summary.setAmountDisapproved(amountDisapproved);
-			summary.setAmountAssigned(amountAssigned);
-			summary.setAmountClosed(amountClosed);
-		}
+		Summary summary = this.ticketService.findSummary();
+		response.setData(summary);
+		return ResponseEntity.ok(response);
+	}
+
+	@PostMapping(value = "/summary/reconcile")
+	@PreAuthorize("hasAnyRole('ADMIN')")
+	public ResponseEntity<Response<Summary>> reconcileSummary() {
+		Response<Summary> response = new Response<Summary>();
+		Summary summary = this.ticketService.reconcileSummary();
 		response.setData(summary);
 		return ResponseEntity.ok(response);
 	}
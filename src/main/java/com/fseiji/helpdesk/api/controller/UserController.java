@@ -5,6 +5,8 @@ import java.util.Optional;
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
@@ -24,9 +26,11 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.fseiji.helpdesk.api.entity.User;
 import com.fseiji.helpdesk.api.response.Response;
+import com.fseiji.helpdesk.api.security.service.JwtUserCache;
 import com.fseiji.helpdesk.api.service.UserService;
 
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @RequestMapping("/api/user")
 @CrossOrigin(origins = "*")
 public class UserController {
@@ -35,6 +39,8 @@ public class UserController {
 	private UserService userService;
 	@Autowired
 	private PasswordEncoder passwordEncoder;
+	@Autowired
+	private JwtUserCache jwtUserCache;
 
 	@PostMapping
 	@PreAuthorize("hasAnyRole('ADMIN')")
@@ -79,6 +85,8 @@ public class UserController {
 			}
 			user.setPassword(this.passwordEncoder.encode(user.getPassword()));
 			User userPersisted = this.userService.createOrUpdate(user);
+			this.jwtUserCache.evictById(user.getId());
+			this.jwtUserCache.evict(user.getEmail());
 			response.setData(userPersisted);
 		} catch (Exception e) {
 			response.getErrors().add(e.getMessage());
@@ -119,6 +127,7 @@ public class UserController {
 			return ResponseEntity.badRequest().body(response);
 		}
 		this.userService.delete(id);
+		this.jwtUserCache.evict(user.getEmail());
 		return ResponseEntity.ok().body(response);
 	}
 
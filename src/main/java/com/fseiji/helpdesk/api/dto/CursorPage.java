@@ -0,0 +1,34 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.util.List;
+
+/**
+ * Página da paginação por cursor. nextCursor é enviado de volta para obter a
+ * página seguinte e é nulo na última página
+ */
+public class CursorPage<T> {
+
+	// maior quantidade de itens por página; a consulta pede um a mais para saber se há próxima
+	public static final int MAX_COUNT = 1000;
+
+	private final List<T> content;
+	private final String nextCursor;
+
+	public CursorPage(List<T> content, String nextCursor) {
+		this.content = content;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean isHasNext() {
+		return nextCursor != null;
+	}
+
+}
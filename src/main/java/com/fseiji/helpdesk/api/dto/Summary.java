@@ -1,6 +1,9 @@
 package com.fseiji.helpdesk.api.dto;
 
 import java.io.Serializable;
+import java.util.Map;
+
+import com.fseiji.helpdesk.api.enums.StatusEnum;
 
 public class Summary implements Serializable {
 
@@ -61,4 +64,21 @@ public class Summary implements Serializable {
 		this.amountClosed = amountClosed;
 	}
 
+	// totais a partir das quantidades por status (dos contadores ou de uma contagem)
+	public static Summary of(Map<StatusEnum, Long> amounts) {
+		Summary summary = new Summary();
+		summary.setAmountNew(amount(amounts, StatusEnum.NEW));
+		summary.setAmountResolved(amount(amounts, StatusEnum.RESOLVED));
+		summary.setAmountApproved(amount(amounts, StatusEnum.APPROVED));
+		summary.setAmountDisapproved(amount(amounts, StatusEnum.DISAPPROVED));
+		summary.setAmountAssigned(amount(amounts, StatusEnum.ASSIGNED));
+		summary.setAmountClosed(amount(amounts, StatusEnum.CLOSED));
+		return summary;
+	}
+
+	private static Integer amount(Map<StatusEnum, Long> amounts, StatusEnum status) {
+		Long amount = amounts == null ? null : amounts.get(status);
+		return amount == null ? 0 : amount.intValue();
+	}
+
 }
@@ -0,0 +1,28 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.util.List;
+
+/**
+ * Corpo de PUT /api/ticket/bulk/status: tickets e o novo status de todos eles
+ */
+public class TicketBulkStatus {
+
+	private List<String> ids;
+	private String status;
+
+	public List<String> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<String> ids) {
+		this.ids = ids;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+}
@@ -0,0 +1,55 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Posição de continuação da paginação por cursor: data e id do último ticket
+ * devolvido, serializados em um token opaco para o cliente. Tickets sem data
+ * vêm depois de todos os outros e têm a data vazia no token
+ */
+public class TicketCursor {
+
+	private final Date date;
+	private final String id;
+
+	public TicketCursor(Date date, String id) {
+		this.date = date;
+		this.id = id;
+	}
+
+	public static TicketCursor of(TicketSummaryView ticket) {
+		return new TicketCursor(ticket.getDate(), ticket.getId());
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String encode() {
+		String value = (this.date == null ? "" : String.valueOf(this.date.getTime())) + ":" + this.id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static TicketCursor decode(String token) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = value.indexOf(':');
+			String id = value.substring(separator + 1);
+			if (separator < 0 || !ObjectId.isValid(id)) {
+				throw new IllegalArgumentException();
+			}
+			String date = value.substring(0, separator);
+			return new TicketCursor(date.isEmpty() ? null : new Date(Long.parseLong(date)), id);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + token);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.util.Date;
+
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Linha da exportação de tickets. Os usuários vão apenas pelo id, sem
+ * consultar a coleção de usuários para cada ticket
+ */
+public class TicketExport {
+
+	private String id;
+	private Integer number;
+	private String title;
+	private String description;
+	private StatusEnum status;
+	private PriorityEnum priority;
+	private Date date;
+	private String userId;
+	private String assignedUserId;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public Integer getNumber() {
+		return number;
+	}
+
+	public void setNumber(Integer number) {
+		this.number = number;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public StatusEnum getStatus() {
+		return status;
+	}
+
+	public void setStatus(StatusEnum status) {
+		this.status = status;
+	}
+
+	public PriorityEnum getPriority() {
+		return priority;
+	}
+
+	public void setPriority(PriorityEnum priority) {
+		this.priority = priority;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public void setDate(Date date) {
+		this.date = date;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public String getAssignedUserId() {
+		return assignedUserId;
+	}
+
+	public void setAssignedUserId(String assignedUserId) {
+		this.assignedUserId = assignedUserId;
+	}
+}
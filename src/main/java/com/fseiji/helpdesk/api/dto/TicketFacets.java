@@ -0,0 +1,34 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Quantidade de tickets por status e por prioridade que atendem ao filtro da
+ * busca (todas as páginas, não só a devolvida)
+ */
+public class TicketFacets {
+
+	private final Map<StatusEnum, Long> status = new EnumMap<StatusEnum, Long>(StatusEnum.class);
+	private final Map<PriorityEnum, Long> priority = new EnumMap<PriorityEnum, Long>(PriorityEnum.class);
+
+	public TicketFacets() {
+		for (StatusEnum value : StatusEnum.values()) {
+			this.status.put(value, 0L);
+		}
+		for (PriorityEnum value : PriorityEnum.values()) {
+			this.priority.put(value, 0L);
+		}
+	}
+
+	public Map<StatusEnum, Long> getStatus() {
+		return status;
+	}
+
+	public Map<PriorityEnum, Long> getPriority() {
+		return priority;
+	}
+}
@@ -0,0 +1,76 @@
+package com.fseiji.helpdesk.api.dto;
+
+/**
+ * Filtros das listagens de ticket. Campos nulos ou vazios não filtram
+ */
+public class TicketFilter {
+
+	private String title;
+	private String status;
+	private String priority;
+	private String userId;
+	private String assignedUserId;
+
+	public TicketFilter() {
+	}
+
+	public TicketFilter(String title, String status, String priority) {
+		this.title = title;
+		this.status = status;
+		this.priority = priority;
+	}
+
+	public boolean isEmpty() {
+		return isEmpty(title) && isEmpty(status) && isEmpty(priority) && isEmpty(userId) && isEmpty(assignedUserId);
+	}
+
+	// chave estável dos filtros, usada no cache de totais
+	public String key() {
+		return title + "|" + status + "|" + priority + "|" + userId + "|" + assignedUserId;
+	}
+
+	private boolean isEmpty(String value) {
+		return value == null || value.isEmpty();
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getPriority() {
+		return priority;
+	}
+
+	public void setPriority(String priority) {
+		this.priority = priority;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public String getAssignedUserId() {
+		return assignedUserId;
+	}
+
+	public void setAssignedUserId(String assignedUserId) {
+		this.assignedUserId = assignedUserId;
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.fseiji.helpdesk.api.dto;
+
+/**
+ * Linha do arquivo de importação que não gerou ticket
+ */
+public class TicketImportError {
+
+	private long line;
+	private String error;
+
+	public TicketImportError() {
+	}
+
+	public TicketImportError(long line, String error) {
+		this.line = line;
+		this.error = error;
+	}
+
+	public long getLine() {
+		return line;
+	}
+
+	public void setLine(long line) {
+		this.line = line;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
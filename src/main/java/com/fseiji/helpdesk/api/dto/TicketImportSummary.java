@@ -0,0 +1,76 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado da importação de tickets: totais, vazão e os erros por linha
+ * (limitados aos primeiros, para não crescer com o tamanho do arquivo)
+ */
+public class TicketImportSummary {
+
+	private long lines;
+	private long imported;
+	private long failed;
+	private long elapsedMillis;
+	private double ticketsPerSecond;
+	private List<TicketImportError> errors = new ArrayList<TicketImportError>();
+	// true se houve mais erros do que os listados em errors
+	private boolean errorsTruncated;
+
+	public long getLines() {
+		return lines;
+	}
+
+	public void setLines(long lines) {
+		this.lines = lines;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public void setImported(long imported) {
+		this.imported = imported;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	public void setFailed(long failed) {
+		this.failed = failed;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public double getTicketsPerSecond() {
+		return ticketsPerSecond;
+	}
+
+	public void setTicketsPerSecond(double ticketsPerSecond) {
+		this.ticketsPerSecond = ticketsPerSecond;
+	}
+
+	public List<TicketImportError> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<TicketImportError> errors) {
+		this.errors = errors;
+	}
+
+	public boolean isErrorsTruncated() {
+		return errorsTruncated;
+	}
+
+	public void setErrorsTruncated(boolean errorsTruncated) {
+		this.errorsTruncated = errorsTruncated;
+	}
+}
@@ -0,0 +1,54 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Posição de continuação da busca por texto: relevância e id do último
+ * ticket devolvido, serializados em um token opaco para o cliente
+ */
+public class TicketSearchCursor {
+
+	private final double score;
+	private final String id;
+
+	public TicketSearchCursor(double score, String id) {
+		this.score = score;
+		this.id = id;
+	}
+
+	public static TicketSearchCursor of(TicketSearchResult ticket) {
+		return new TicketSearchCursor(ticket.getScore(), ticket.getId());
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	// a relevância vai com todos os bits para que a comparação com o próximo lote seja exata
+	public String encode() {
+		String value = Long.toHexString(Double.doubleToLongBits(this.score)) + ":" + this.id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static TicketSearchCursor decode(String token) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = value.indexOf(':');
+			String id = value.substring(separator + 1);
+			if (separator < 0 || !ObjectId.isValid(id)) {
+				throw new IllegalArgumentException();
+			}
+			double score = Double.longBitsToDouble(Long.parseUnsignedLong(value.substring(0, separator), 16));
+			return new TicketSearchCursor(score, id);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + token);
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.util.List;
+
+/**
+ * Página da busca por texto. facets só é preenchido quando pedido na busca
+ */
+public class TicketSearchPage extends CursorPage<TicketSearchResult> {
+
+	private final TicketFacets facets;
+
+	public TicketSearchPage(List<TicketSearchResult> content, String nextCursor, TicketFacets facets) {
+		super(content, nextCursor);
+		this.facets = facets;
+	}
+
+	public TicketFacets getFacets() {
+		return facets;
+	}
+}
@@ -0,0 +1,83 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.util.Date;
+
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Ticket encontrado pela busca por texto: os campos da listagem e a
+ * relevância calculada pelo índice de texto
+ */
+public class TicketSearchResult implements TicketSummaryView {
+
+	private String id;
+	private Integer number;
+	private String title;
+	private StatusEnum status;
+	private PriorityEnum priority;
+	private Date date;
+	private Double score;
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	@Override
+	public Integer getNumber() {
+		return number;
+	}
+
+	public void setNumber(Integer number) {
+		this.number = number;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	@Override
+	public StatusEnum getStatus() {
+		return status;
+	}
+
+	public void setStatus(StatusEnum status) {
+		this.status = status;
+	}
+
+	@Override
+	public PriorityEnum getPriority() {
+		return priority;
+	}
+
+	public void setPriority(PriorityEnum priority) {
+		this.priority = priority;
+	}
+
+	@Override
+	public Date getDate() {
+		return date;
+	}
+
+	public void setDate(Date date) {
+		this.date = date;
+	}
+
+	public Double getScore() {
+		return score;
+	}
+
+	public void setScore(Double score) {
+		this.score = score;
+	}
+}
@@ -0,0 +1,48 @@
+package com.fseiji.helpdesk.api.dto;
+
+import com.fseiji.helpdesk.api.enums.ChangeResultEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Resultado de um ticket na mudança de status em lote
+ */
+public class TicketStatusResult {
+
+	private String id;
+	private ChangeResultEnum result;
+	// status antes da mudança (nulo se o ticket não foi encontrado)
+	private StatusEnum previous;
+
+	public TicketStatusResult() {
+	}
+
+	public TicketStatusResult(String id, ChangeResultEnum result, StatusEnum previous) {
+		this.id = id;
+		this.result = result;
+		this.previous = previous;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public ChangeResultEnum getResult() {
+		return result;
+	}
+
+	public void setResult(ChangeResultEnum result) {
+		this.result = result;
+	}
+
+	public StatusEnum getPrevious() {
+		return previous;
+	}
+
+	public void setPrevious(StatusEnum previous) {
+		this.previous = previous;
+	}
+}
@@ -0,0 +1,26 @@
+package com.fseiji.helpdesk.api.dto;
+
+import java.util.Date;
+
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Projeção do Ticket usada nas listagens: o MongoDB devolve apenas estes
+ * campos, sem description, image e os usuários. O documento completo continua
+ * disponível em GET /api/ticket/{id}
+ */
+public interface TicketSummaryView {
+
+	String getId();
+
+	Integer getNumber();
+
+	String getTitle();
+
+	StatusEnum getStatus();
+
+	PriorityEnum getPriority();
+
+	Date getDate();
+}
@@ -3,11 +3,14 @@ package com.fseiji.helpdesk.api.entity;
 import java.util.Date;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.fseiji.helpdesk.api.enums.StatusEnum;
 
+// histórico de um ticket, do mais recente para o mais antigo
+@CompoundIndex(name = "ticket_dateChangeStatus", def = "{'ticket.$id': 1, 'dateChangeStatus': -1}")
 @Document
 public class ChangeStatus {
 
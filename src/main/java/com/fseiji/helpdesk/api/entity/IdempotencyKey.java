@@ -0,0 +1,69 @@
+package com.fseiji.helpdesk.api.entity;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Chave Idempotency-Key já recebida na criação de ticket e o ticket criado com
+ * ela. O MongoDB remove o documento quando expiresAt passa (índice TTL)
+ */
+@Document
+public class IdempotencyKey {
+
+	// id do usuário + ":" + chave enviada, para que usuários diferentes não compartilhem chaves
+	@Id
+	private String id;
+
+	// hash do corpo da requisição que reservou a chave
+	private String fingerprint;
+
+	// nulo enquanto a requisição que reservou a chave ainda está criando o ticket
+	private String ticketId;
+
+	@Indexed(name = "expiresAt_ttl", expireAfterSeconds = 0)
+	private Date expiresAt;
+
+	public IdempotencyKey() {
+	}
+
+	public IdempotencyKey(String id, String fingerprint, Date expiresAt) {
+		this.id = id;
+		this.fingerprint = fingerprint;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	public String getTicketId() {
+		return ticketId;
+	}
+
+	public void setTicketId(String ticketId) {
+		this.ticketId = ticketId;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Date expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+}
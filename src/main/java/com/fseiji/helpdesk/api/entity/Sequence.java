@@ -0,0 +1,36 @@
+package com.fseiji.helpdesk.api.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Último valor reservado de uma sequência. Cada nó da aplicação reserva um
+ * bloco de valores de uma vez e os distribui em memória
+ */
+@Document
+public class Sequence {
+
+	public static final String TICKET_NUMBER = "ticketNumber";
+
+	@Id
+	private String id;
+
+	private Long value;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public Long getValue() {
+		return value;
+	}
+
+	public void setValue(Long value) {
+		this.value = value;
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.fseiji.helpdesk.api.entity;
+
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Total de tickets por status, mantido incrementalmente a cada mudança de
+ * status para que o resumo seja lido em um único documento
+ */
+@Document
+public class StatusCounter {
+
+	public static final String TICKET = "ticket";
+
+	@Id
+	private String id;
+
+	private Map<StatusEnum, Long> amounts;
+
+	public StatusCounter() {
+	}
+
+	public StatusCounter(String id, Map<StatusEnum, Long> amounts) {
+		this.id = id;
+		this.amounts = amounts;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public Map<StatusEnum, Long> getAmounts() {
+		return amounts;
+	}
+
+	public void setAmounts(Map<StatusEnum, Long> amounts) {
+		this.amounts = amounts;
+	}
+
+}
@@ -5,12 +5,31 @@ import java.util.List;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fseiji.helpdesk.api.enums.PriorityEnum;
 import com.fseiji.helpdesk.api.enums.StatusEnum;
 
+// índices das consultas de ticket, criados em segundo plano pelo IndexBootstrap
+@CompoundIndexes({
+	// paginação por cursor e listagem geral (data decrescente, desempate pelo id)
+	@CompoundIndex(name = "date_id", def = "{'date': -1, '_id': -1}"),
+	// tickets do cliente
+	@CompoundIndex(name = "user_date", def = "{'user.$id': 1, 'date': -1}"),
+	// tickets atribuídos ao técnico, com ou sem status
+	@CompoundIndex(name = "assignedUser_status_date", def = "{'assignedUser.$id': 1, 'status': 1, 'date': -1}"),
+	// filtros de status e prioridade
+	@CompoundIndex(name = "status_priority_date", def = "{'status': 1, 'priority': 1, 'date': -1}"),
+	// busca por trecho do título (um trigrama por entrada do índice)
+	@CompoundIndex(name = "titleGrams_date", def = "{'titleGrams': 1, 'date': -1}")
+})
 @Document
 public class Ticket {
 
@@ -22,8 +41,15 @@ public class Ticket {
 
 	private Date date;
 
+	// título e descrição formam o índice de texto da busca (/api/ticket/search); o título pesa mais
+	@TextIndexed(weight = 3)
 	private String title;
 
+	// trigramas do título, mantidos pelo TicketService a cada gravação (não saem na API)
+	@JsonIgnore
+	private List<String> titleGrams;
+
+	@Indexed(unique = true)
 	private Integer number;
 
 	private StatusEnum status;
@@ -33,9 +59,15 @@ public class Ticket {
 	@DBRef(lazy = true)
 	private User assignedUser;
 
+	@TextIndexed
 	private String description;
 
-	private String image;
+	// id do arquivo da imagem no GridFS (o conteúdo fica fora do documento do ticket)
+	private String imageId;
+
+	// controle de concorrência otimista: a gravação falha se outro usuário alterou o ticket antes
+	@Version
+	private Long version;
 	
 	//@Transient não criado uma representação no banco de dados (será ignorado)
 	@Transient
@@ -76,6 +108,14 @@ public class Ticket {
 		this.title = title;
 	}
 
+	public List<String> getTitleGrams() {
+		return titleGrams;
+	}
+
+	public void setTitleGrams(List<String> titleGrams) {
+		this.titleGrams = titleGrams;
+	}
+
 	public Integer getNumber() {
 		return number;
 	}
@@ -116,12 +156,20 @@ public class Ticket {
 		this.description = description;
 	}
 
-	public String getImage() {
-		return image;
+	public String getImageId() {
+		return imageId;
+	}
+
+	public void setImageId(String imageId) {
+		this.imageId = imageId;
+	}
+
+	public Long getVersion() {
+		return version;
 	}
 
-	public void setImage(String image) {
-		this.image = image;
+	public void setVersion(Long version) {
+		this.version = version;
 	}
 
 	public List<ChangeStatus> getChanges() {
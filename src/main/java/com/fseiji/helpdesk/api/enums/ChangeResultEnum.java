@@ -0,0 +1,15 @@
+package com.fseiji.helpdesk.api.enums;
+
+/**
+ * Resultado da mudança de status de cada ticket em uma alteração em lote
+ */
+public enum ChangeResultEnum {
+	// status alterado e histórico gravado
+	CHANGED,
+	// o ticket já estava no status pedido
+	UNCHANGED,
+	// id inválido ou ticket inexistente
+	NOT_FOUND,
+	// o ticket foi alterado por outro usuário durante a operação
+	CONFLICT;
+}
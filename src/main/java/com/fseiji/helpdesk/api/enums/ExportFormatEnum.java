@@ -0,0 +1,11 @@
+package com.fseiji.helpdesk.api.enums;
+
+/**
+ * Formatos da exportação de tickets
+ */
+public enum ExportFormatEnum {
+	// um objeto JSON por linha
+	NDJSON,
+	// cabeçalho e uma linha por ticket, separados por vírgula
+	CSV;
+}
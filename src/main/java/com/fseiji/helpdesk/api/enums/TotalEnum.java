@@ -0,0 +1,13 @@
+package com.fseiji.helpdesk.api.enums;
+
+/**
+ * Como o total de registros é obtido nas listagens paginadas
+ */
+public enum TotalEnum {
+	// count exato a cada página
+	EXACT,
+	// sem count, apenas indica se existe próxima página (Slice)
+	NONE,
+	// total estimado ou mantido em cache por alguns segundos
+	APPROXIMATE;
+}
@@ -0,0 +1,8 @@
+package com.fseiji.helpdesk.api.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.fseiji.helpdesk.api.entity.IdempotencyKey;
+
+public interface IdempotencyKeyRepository extends MongoRepository<IdempotencyKey, String> {
+}
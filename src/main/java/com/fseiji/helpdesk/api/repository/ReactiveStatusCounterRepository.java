@@ -0,0 +1,10 @@
+package com.fseiji.helpdesk.api.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+
+public interface ReactiveStatusCounterRepository
+		extends ReactiveMongoRepository<StatusCounter, String>, ReactiveStatusCounterRepositoryCustom {
+
+}
@@ -0,0 +1,17 @@
+package com.fseiji.helpdesk.api.repository;
+
+import java.util.Map;
+
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Versão reativa de StatusCounterRepositoryCustom.initialize
+ */
+public interface ReactiveStatusCounterRepositoryCustom {
+
+	// cria o documento com os totais informados somente se ele ainda não existe; devolve o documento como ficou
+	Mono<StatusCounter> initialize(String id, Map<StatusEnum, Long> amounts);
+}
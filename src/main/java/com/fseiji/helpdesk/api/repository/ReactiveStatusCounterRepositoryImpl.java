@@ -0,0 +1,28 @@
+package com.fseiji.helpdesk.api.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+import reactor.core.publisher.Mono;
+
+public class ReactiveStatusCounterRepositoryImpl implements ReactiveStatusCounterRepositoryCustom {
+
+	@Autowired
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+
+	@Override
+	public Mono<StatusCounter> initialize(String id, Map<StatusEnum, Long> amounts) {
+		return this.reactiveMongoTemplate.findAndModify(query(where("id").is(id)),
+				StatusCounterRepositoryImpl.setOnInsert(amounts),
+				FindAndModifyOptions.options().upsert(true).returnNew(true), StatusCounter.class);
+	}
+}
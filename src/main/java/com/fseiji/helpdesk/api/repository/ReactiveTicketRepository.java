@@ -0,0 +1,14 @@
+package com.fseiji.helpdesk.api.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.fseiji.helpdesk.api.entity.Ticket;
+
+/**
+ * Leituras de Ticket do modo reativo (WebFlux), sem bloquear as threads do
+ * servidor enquanto o MongoDB responde
+ */
+public interface ReactiveTicketRepository
+		extends ReactiveMongoRepository<Ticket, String>, ReactiveTicketRepositoryCustom {
+
+}
@@ -0,0 +1,38 @@
+package com.fseiji.helpdesk.api.repository;
+
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchCursor;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Versões reativas das consultas de TicketRepositoryCustom usadas pelos
+ * endpoints de leitura, implementadas com o ReactiveMongoTemplate e as mesmas
+ * agregações do repositório bloqueante
+ */
+public interface ReactiveTicketRepositoryCustom {
+
+	// total de tickets agrupados por status, calculado pelo próprio MongoDB
+	Mono<Map<StatusEnum, Long>> countGroupByStatus();
+
+	// ticket com o histórico e os usuários, em uma única agregação; vazio se o ticket não existir
+	Mono<Ticket> findDetailById(String id);
+
+	// busca paginada com os filtros informados, ordenada por data decrescente
+	Mono<Page<TicketSummaryView>> findPageByFilter(TicketFilter filter, Pageable pageable);
+
+	Mono<Long> countByFilter(TicketFilter filter);
+
+	// busca por texto, do mais relevante para o menos relevante, como em TicketRepositoryCustom
+	Mono<TicketSearchPage> searchText(String text, TicketFilter filter, TicketSearchCursor after, int count,
+			boolean facets);
+}
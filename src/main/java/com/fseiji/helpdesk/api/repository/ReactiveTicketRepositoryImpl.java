@@ -0,0 +1,97 @@
+package com.fseiji.helpdesk.api.repository;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchCursor;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+import reactor.core.publisher.Mono;
+
+public class ReactiveTicketRepositoryImpl implements ReactiveTicketRepositoryCustom {
+
+	@Autowired
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+
+	@Override
+	public Mono<Map<StatusEnum, Long>> countGroupByStatus() {
+		return this.reactiveMongoTemplate
+				.aggregate(newAggregation(group("status").count().as("amount")), Ticket.class, Document.class)
+				.filter(result -> result.getString("_id") != null)
+				.reduceWith(ReactiveTicketRepositoryImpl::emptyAmounts, (amounts, result) -> {
+					amounts.put(StatusEnum.valueOf(result.getString("_id")), ((Number) result.get("amount")).longValue());
+					return amounts;
+				});
+	}
+
+	private static Map<StatusEnum, Long> emptyAmounts() {
+		Map<StatusEnum, Long> amounts = new EnumMap<StatusEnum, Long>(StatusEnum.class);
+		for (StatusEnum status : StatusEnum.values()) {
+			amounts.put(status, 0L);
+		}
+		return amounts;
+	}
+
+	@Override
+	public Mono<Ticket> findDetailById(String id) {
+		if (!ObjectId.isValid(id)) {
+			return Mono.empty();
+		}
+		List<Document> pipeline = TicketPipelines.detail(this.reactiveMongoTemplate.getConverter(), new ObjectId(id));
+		return this.reactiveMongoTemplate.execute(Ticket.class, collection -> collection.aggregate(pipeline).first())
+				.next().map(detail -> TicketPipelines.toDetail(this.reactiveMongoTemplate.getConverter(), detail));
+	}
+
+	@Override
+	public Mono<Page<TicketSummaryView>> findPageByFilter(TicketFilter filter, Pageable pageable) {
+		Query query = new Query(TicketCriteria.of(filter));
+		query.with(Sort.by(Direction.DESC, "date")).with(pageable);
+		return this.reactiveMongoTemplate.query(Ticket.class).as(TicketSummaryView.class).matching(query).all()
+				.collectList().flatMap(tickets -> {
+					// o count só é feito quando a página não basta para saber o total (como no PageableExecutionUtils)
+					boolean lastPage = tickets.size() < pageable.getPageSize()
+							&& (pageable.getOffset() == 0 || !tickets.isEmpty());
+					if (lastPage) {
+						return Mono.<Page<TicketSummaryView>>just(new PageImpl<TicketSummaryView>(tickets, pageable,
+								pageable.getOffset() + tickets.size()));
+					}
+					return countByFilter(filter)
+							.map(total -> new PageImpl<TicketSummaryView>(tickets, pageable, total));
+				});
+	}
+
+	@Override
+	public Mono<Long> countByFilter(TicketFilter filter) {
+		return this.reactiveMongoTemplate.count(new Query(TicketCriteria.of(filter)), Ticket.class);
+	}
+
+	@Override
+	public Mono<TicketSearchPage> searchText(String text, TicketFilter filter, TicketSearchCursor after, int count,
+			boolean facets) {
+		List<Document> pipeline = TicketPipelines.search(this.reactiveMongoTemplate.getConverter(), text, filter,
+				after, count, facets);
+		return this.reactiveMongoTemplate.execute(Ticket.class, collection -> collection.aggregate(pipeline))
+				.collectList()
+				.map(documents -> TicketPipelines.toSearchPage(this.reactiveMongoTemplate.getConverter(), documents,
+						facets));
+	}
+}
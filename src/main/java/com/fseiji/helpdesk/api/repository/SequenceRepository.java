@@ -0,0 +1,9 @@
+package com.fseiji.helpdesk.api.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.fseiji.helpdesk.api.entity.Sequence;
+
+public interface SequenceRepository extends MongoRepository<Sequence, String>, SequenceRepositoryCustom {
+
+}
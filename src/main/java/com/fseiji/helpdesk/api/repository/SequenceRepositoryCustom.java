@@ -0,0 +1,10 @@
+package com.fseiji.helpdesk.api.repository;
+
+public interface SequenceRepositoryCustom {
+
+	// reserva os próximos size valores da sequência e devolve o último deles
+	long reserve(String id, int size);
+
+	// garante que a sequência não devolva valores menores ou iguais a value
+	void raiseTo(String id, long value);
+}
@@ -0,0 +1,30 @@
+package com.fseiji.helpdesk.api.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.fseiji.helpdesk.api.entity.Sequence;
+
+public class SequenceRepositoryImpl implements SequenceRepositoryCustom {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Override
+	public long reserve(String id, int size) {
+		Sequence sequence = this.mongoTemplate.findAndModify(query(where("id").is(id)),
+				new Update().inc("value", size), FindAndModifyOptions.options().upsert(true).returnNew(true),
+				Sequence.class);
+		return sequence.getValue();
+	}
+
+	@Override
+	public void raiseTo(String id, long value) {
+		this.mongoTemplate.upsert(query(where("id").is(id)), new Update().max("value", value), Sequence.class);
+	}
+}
@@ -0,0 +1,9 @@
+package com.fseiji.helpdesk.api.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+
+public interface StatusCounterRepository extends MongoRepository<StatusCounter, String>, StatusCounterRepositoryCustom {
+
+}
@@ -0,0 +1,25 @@
+package com.fseiji.helpdesk.api.repository;
+
+import java.util.Map;
+
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Atualizações atômicas ($inc) dos contadores, sem ler o documento antes
+ */
+public interface StatusCounterRepositoryCustom {
+
+	// soma amount ao total do status (amount negativo decrementa)
+	void increment(String id, StatusEnum status, long amount);
+
+	// move um ticket de um status para outro em uma única escrita
+	void move(String id, StatusEnum from, StatusEnum to);
+
+	// cria o documento com os totais informados somente se ele ainda não existe ($setOnInsert), sem
+	// sobrescrever os $inc de outros nós; devolve o documento como ficou
+	StatusCounter initialize(String id, Map<StatusEnum, Long> amounts);
+
+	// soma as diferenças de vários status em uma única escrita (usado nas mudanças em lote)
+	void incrementAll(String id, Map<StatusEnum, Long> amounts);
+}
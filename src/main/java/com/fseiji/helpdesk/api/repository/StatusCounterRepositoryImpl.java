@@ -0,0 +1,70 @@
+package com.fseiji.helpdesk.api.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+public class StatusCounterRepositoryImpl implements StatusCounterRepositoryCustom {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Override
+	public void increment(String id, StatusEnum status, long amount) {
+		Update update = new Update().inc(field(status), amount);
+		this.mongoTemplate.upsert(query(where("id").is(id)), update, StatusCounter.class);
+	}
+
+	@Override
+	public void move(String id, StatusEnum from, StatusEnum to) {
+		if (from == to) {
+			return;
+		}
+		Update update = new Update();
+		if (from != null) {
+			update.inc(field(from), -1);
+		}
+		if (to != null) {
+			update.inc(field(to), 1);
+		}
+		this.mongoTemplate.upsert(query(where("id").is(id)), update, StatusCounter.class);
+	}
+
+	@Override
+	public void incrementAll(String id, Map<StatusEnum, Long> amounts) {
+		Update update = new Update();
+		amounts.forEach((status, amount) -> {
+			if (amount != 0) {
+				update.inc(field(status), amount);
+			}
+		});
+		if (!update.getUpdateObject().isEmpty()) {
+			this.mongoTemplate.upsert(query(where("id").is(id)), update, StatusCounter.class);
+		}
+	}
+
+	@Override
+	public StatusCounter initialize(String id, Map<StatusEnum, Long> amounts) {
+		return this.mongoTemplate.findAndModify(query(where("id").is(id)), setOnInsert(amounts),
+				FindAndModifyOptions.options().upsert(true).returnNew(true), StatusCounter.class);
+	}
+
+	static Update setOnInsert(Map<StatusEnum, Long> amounts) {
+		Update update = new Update();
+		amounts.forEach((status, amount) -> update.setOnInsert(field(status), amount));
+		return update;
+	}
+
+	private static String field(StatusEnum status) {
+		return "amounts." + status.name();
+	}
+}
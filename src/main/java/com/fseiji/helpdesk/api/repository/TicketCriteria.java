@@ -0,0 +1,85 @@
+package com.fseiji.helpdesk.api.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.Date;
+import java.util.regex.Pattern;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.util.Trigrams;
+
+/**
+ * Monta o filtro das buscas de ticket. Filtros vazios ficam de fora da
+ * consulta; usuário, status e prioridade são comparações de igualdade (os
+ * prefixos dos índices compostos) e o título é buscado pelos seus trigramas,
+ * com o regex como filtro residual
+ */
+final class TicketCriteria {
+
+	private TicketCriteria() {
+	}
+
+	static Criteria of(TicketFilter filter) {
+		Criteria criteria = new Criteria();
+		if (filter == null) {
+			return criteria;
+		}
+		if (hasText(filter.getUserId())) {
+			criteria = criteria.and("user.$id").is(new ObjectId(filter.getUserId()));
+		}
+		if (hasText(filter.getAssignedUserId())) {
+			criteria = criteria.and("assignedUser.$id").is(new ObjectId(filter.getAssignedUserId()));
+		}
+		if (hasText(filter.getStatus())) {
+			criteria = criteria.and("status").is(status(filter.getStatus()));
+		}
+		if (hasText(filter.getPriority())) {
+			criteria = criteria.and("priority").is(priority(filter.getPriority()));
+		}
+		if (hasText(filter.getTitle())) {
+			// os trigramas chegam aos candidatos pelo índice; o regex confirma que o trecho está no título.
+			// Tickets ainda sem trigramas (TitleGramsBackfill em andamento) entram só pelo regex
+			if (filter.getTitle().length() >= Trigrams.SIZE) {
+				criteria = criteria.andOperator(new Criteria().orOperator(
+						where("titleGrams").all(Trigrams.of(filter.getTitle())), where("titleGrams").exists(false)));
+			}
+			criteria = criteria.and("title").regex(Pattern.quote(filter.getTitle()), "i");
+		}
+		return criteria;
+	}
+
+	// tickets anteriores ao cursor na ordem (date desc, id desc)
+	static Criteria before(Criteria criteria, Date date, ObjectId id) {
+		// na ordem decrescente os tickets sem data ficam por último
+		if (date == null) {
+			return criteria.and("date").is(null).and("id").lt(id);
+		}
+		return criteria.orOperator(where("date").lt(date),
+				new Criteria().andOperator(where("date").is(date), where("id").lt(id)), where("date").is(null));
+	}
+
+	private static StatusEnum status(String status) {
+		try {
+			return StatusEnum.valueOf(status.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid status: " + status);
+		}
+	}
+
+	private static PriorityEnum priority(String priority) {
+		try {
+			return PriorityEnum.valueOf(priority.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid priority: " + priority);
+		}
+	}
+
+	private static boolean hasText(String value) {
+		return value != null && !value.isEmpty();
+	}
+}
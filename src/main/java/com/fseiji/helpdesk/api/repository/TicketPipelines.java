@@ -0,0 +1,180 @@
+package com.fseiji.helpdesk.api.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+
+import com.fseiji.helpdesk.api.dto.TicketFacets;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchCursor;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSearchResult;
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Agregações do detalhe e da busca de tickets e a leitura dos seus
+ * resultados, usadas pelo repositório bloqueante e pelo reativo. Só usa o
+ * MongoConverter para mapear e ler documentos: os @DBRef vêm por $lookup e
+ * nunca são resolvidos pelo converter (o reativo não resolve DBRef)
+ */
+final class TicketPipelines {
+
+	private TicketPipelines() {
+	}
+
+	// Os @DBRef não podem ser usados como localField/foreignField do $lookup ("ticket.$id"
+	// não é um caminho válido em agregações). O histórico é buscado por um sub-pipeline
+	// com o id do ticket como constante, o que permite usar o índice de "ticket.$id", e os
+	// ids dos usuários são extraídos dos DBRef (refId) antes de cada $lookup.
+	static List<Document> detail(MongoConverter converter, ObjectId ticketId) {
+		List<Document> changesPipeline = Arrays.asList(
+				new Document("$match", new Document("ticket.$id", ticketId)),
+				new Document("$sort", new Document("dateChangeStatus", -1)),
+				new Document("$project", new Document("status", 1).append("dateChangeStatus", 1)
+						.append("userChangeId", refId("$userChange"))),
+				lookupUser(converter, "userChangeId.v", "userChange"),
+				unwind("$userChange"),
+				new Document("$project", new Document("userChangeId", 0).append("userChange.password", 0)));
+		return Arrays.asList(
+				new Document("$match", new Document("_id", ticketId)),
+				new Document("$lookup",
+						new Document("from", collectionName(converter, ChangeStatus.class))
+								.append("pipeline", changesPipeline).append("as", "changes")),
+				new Document("$addFields", new Document("userId", refId("$user")).append("assignedUserId",
+						refId("$assignedUser"))),
+				lookupUser(converter, "userId.v", "userDoc"),
+				lookupUser(converter, "assignedUserId.v", "assignedUserDoc"),
+				unwind("$userDoc"),
+				unwind("$assignedUserDoc"),
+				new Document("$project", new Document("userId", 0).append("assignedUserId", 0).append("titleGrams", 0)
+						.append("user", 0).append("assignedUser", 0).append("userDoc.password", 0)
+						.append("assignedUserDoc.password", 0)));
+	}
+
+	static Ticket toDetail(MongoConverter converter, Document detail) {
+		Ticket ticket = converter.read(Ticket.class, detail);
+		ticket.setUser(toUser(converter, detail.get("userDoc", Document.class)));
+		ticket.setAssignedUser(toUser(converter, detail.get("assignedUserDoc", Document.class)));
+		List<ChangeStatus> changes = new ArrayList<ChangeStatus>();
+		for (Document change : detail.getList("changes", Document.class)) {
+			changes.add(toChangeStatus(converter, change));
+		}
+		ticket.setChanges(changes);
+		return ticket;
+	}
+
+	// pelo formato do DBRef, { $ref, $id }, o segundo par de $objectToArray é { k: "$id", v: <id> }
+	private static Document refId(String field) {
+		return new Document("$arrayElemAt", Arrays.asList(
+				new Document("$objectToArray", new Document("$ifNull", Arrays.asList(field, new Document()))), 1));
+	}
+
+	private static Document lookupUser(MongoConverter converter, String localField, String as) {
+		return new Document("$lookup", new Document("from", collectionName(converter, User.class))
+				.append("localField", localField).append("foreignField", "_id").append("as", as));
+	}
+
+	private static Document unwind(String path) {
+		return new Document("$unwind", new Document("path", path).append("preserveNullAndEmptyArrays", true));
+	}
+
+	private static String collectionName(MongoConverter converter, Class<?> type) {
+		return converter.getMappingContext().getRequiredPersistentEntity(type).getCollection();
+	}
+
+	private static User toUser(MongoConverter converter, Document document) {
+		return document == null ? null : converter.read(User.class, document);
+	}
+
+	private static ChangeStatus toChangeStatus(MongoConverter converter, Document document) {
+		ChangeStatus changeStatus = new ChangeStatus();
+		changeStatus.setId(document.getObjectId("_id").toHexString());
+		changeStatus.setDateChangeStatus(document.getDate("dateChangeStatus"));
+		String status = document.getString("status");
+		if (status != null) {
+			changeStatus.setStatus(StatusEnum.valueOf(status));
+		}
+		changeStatus.setUserChange(toUser(converter, document.get("userChange", Document.class)));
+		return changeStatus;
+	}
+
+	// busca por texto: com facets, página e contagens saem da mesma agregação, em um único documento
+	static List<Document> search(MongoConverter converter, String text, TicketFilter filter,
+			TicketSearchCursor after, int count, boolean facets) {
+		Document match = new QueryMapper(converter).getMappedObject(TicketCriteria.of(filter).getCriteriaObject(),
+				converter.getMappingContext().getPersistentEntity(Ticket.class));
+		match.put("$text", new Document("$search", text));
+		List<Document> pipeline = new ArrayList<Document>();
+		pipeline.add(new Document("$match", match));
+		pipeline.add(new Document("$addFields", new Document("score", new Document("$meta", "textScore"))));
+		List<Document> results = searchResults(after, count);
+		if (!facets) {
+			pipeline.addAll(results);
+			return pipeline;
+		}
+		// as contagens valem para o filtro todo, não só para a página
+		pipeline.add(new Document("$facet", new Document("results", results)
+				.append("status", countBy("$status")).append("priority", countBy("$priority"))));
+		return pipeline;
+	}
+
+	private static List<Document> searchResults(TicketSearchCursor after, int count) {
+		List<Document> pipeline = new ArrayList<Document>();
+		if (after != null) {
+			// continua depois do último devolvido na ordem (score desc, _id desc)
+			pipeline.add(new Document("$match", new Document("$or", Arrays.asList(
+					new Document("score", new Document("$lt", after.getScore())),
+					new Document("score", after.getScore()).append("_id",
+							new Document("$lt", new ObjectId(after.getId())))))));
+		}
+		pipeline.add(new Document("$sort", new Document("score", -1).append("_id", -1)));
+		pipeline.add(new Document("$limit", count));
+		pipeline.add(new Document("$project", new Document("number", 1).append("title", 1).append("status", 1)
+				.append("priority", 1).append("date", 1).append("score", 1)));
+		return pipeline;
+	}
+
+	private static List<Document> countBy(String field) {
+		return Arrays.asList(new Document("$group", new Document("_id", field).append("count", new Document("$sum", 1))));
+	}
+
+	// documentos devolvidos pela agregação de search: os tickets ou, com facets, o documento do $facet
+	static TicketSearchPage toSearchPage(MongoConverter converter, List<Document> documents, boolean facets) {
+		if (!facets) {
+			return new TicketSearchPage(toSearchResults(converter, documents), null, null);
+		}
+		Document facet = documents.get(0);
+		TicketFacets ticketFacets = new TicketFacets();
+		for (Document status : facet.getList("status", Document.class)) {
+			if (status.getString("_id") != null) {
+				ticketFacets.getStatus().put(StatusEnum.valueOf(status.getString("_id")),
+						((Number) status.get("count")).longValue());
+			}
+		}
+		for (Document priority : facet.getList("priority", Document.class)) {
+			if (priority.getString("_id") != null) {
+				ticketFacets.getPriority().put(PriorityEnum.valueOf(priority.getString("_id")),
+						((Number) priority.get("count")).longValue());
+			}
+		}
+		return new TicketSearchPage(toSearchResults(converter, facet.getList("results", Document.class)), null,
+				ticketFacets);
+	}
+
+	private static List<TicketSearchResult> toSearchResults(MongoConverter converter, List<Document> documents) {
+		List<TicketSearchResult> tickets = new ArrayList<TicketSearchResult>();
+		for (Document document : documents) {
+			tickets.add(converter.read(TicketSearchResult.class, document));
+		}
+		return tickets;
+	}
+}
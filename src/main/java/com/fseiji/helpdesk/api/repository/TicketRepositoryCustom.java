@@ -0,0 +1,87 @@
+package com.fseiji.helpdesk.api.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.util.CloseableIterator;
+
+import com.fseiji.helpdesk.api.dto.TicketCursor;
+import com.fseiji.helpdesk.api.dto.TicketExport;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchCursor;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Consultas de Ticket que não podem ser derivadas do nome do método e são
+ * implementadas com o MongoTemplate
+ */
+public interface TicketRepositoryCustom {
+
+	// total de tickets agrupados por status, calculado pelo próprio MongoDB
+	Map<StatusEnum, Long> countGroupByStatus();
+
+	// ticket com o histórico de mudanças de status (mais recente primeiro) e os
+	// usuários envolvidos, em uma única agregação; null se o ticket não existir
+	Ticket findDetailById(String id);
+
+	// até count tickets após o cursor (ou desde o início se after for nulo), ordenados
+	// por data decrescente, usando um predicado de intervalo em vez de skip
+	List<TicketSummaryView> findByFilterAfter(TicketFilter filter, TicketCursor after, int count);
+
+	// busca paginada com os filtros informados (os vazios são ignorados), ordenada por data decrescente
+	Page<TicketSummaryView> findPageByFilter(TicketFilter filter, Pageable pageable);
+
+	// página sem count: busca um registro a mais apenas para saber se há próxima página
+	Slice<TicketSummaryView> findSliceByFilter(TicketFilter filter, Pageable pageable);
+
+	long countByFilter(TicketFilter filter);
+
+	// total de tickets a partir dos metadados da coleção, sem percorrer os documentos
+	long estimatedCount();
+
+	// busca por texto (índice de título e descrição), do mais relevante para o menos relevante;
+	// com facets, as contagens por status e prioridade vêm na mesma agregação ($facet)
+	TicketSearchPage searchText(String text, TicketFilter filter, TicketSearchCursor after, int count, boolean facets);
+
+	// grava os trigramas do título nos tickets que ainda não os têm; devolve quantos foram atualizados
+	int fillTitleGrams();
+
+	// remove o ticket e devolve o que foi removido (apenas id, status e imageId), ou null
+	Ticket findAndRemove(String id);
+
+	// troca só a referência da imagem, sem regravar o documento, e devolve o imageId anterior
+	Ticket updateImageId(String id, String imageId);
+
+	// muda o status (e o responsável, se informado) somente se o status atual ainda for o esperado,
+	// em um único findAndModify; devolve o ticket atualizado, ou null se o status já mudou
+	Ticket changeStatus(String id, StatusEnum expected, StatusEnum status, User assignedUser);
+
+	// id, status e versão dos tickets informados, em uma única consulta
+	List<Ticket> findStatusByIds(Collection<String> ids);
+
+	// aplica a mudança de status aos tickets em um único bulkWrite não ordenado; cada ticket só é
+	// alterado se status e versão ainda forem os lidos. Devolve quantos foram alterados
+	int changeStatus(List<Ticket> expected, StatusEnum status, User assignedUser);
+
+	// todos os tickets do filtro, por data decrescente, lidos do cursor do MongoDB em lotes;
+	// quem consome deve fechar o iterator para liberar o cursor no servidor
+	CloseableIterator<TicketExport> streamByFilter(TicketFilter filter);
+
+	// ids dos tickets sem número ou que repetem o número de um ticket mais antigo (o de menor id fica
+	// com o número), que precisam de um número novo antes da criação do índice único de number
+	List<String> findIdsToRenumber();
+
+	// troca só o número do ticket; a versão sobe para invalidar edições concorrentes
+	void updateNumber(String id, int number);
+
+	// versão inicial dos tickets gravados antes do controle de concorrência; devolve quantos foram atualizados
+	long fillVersion();
+}
@@ -0,0 +1,307 @@
+package com.fseiji.helpdesk.api.repository;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.data.util.CloseableIterator;
+
+import com.fseiji.helpdesk.api.dto.TicketCursor;
+import com.fseiji.helpdesk.api.dto.TicketExport;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchCursor;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.util.Trigrams;
+import com.mongodb.DBRef;
+import com.mongodb.client.MongoCursor;
+
+public class TicketRepositoryImpl implements TicketRepositoryCustom {
+
+	// documentos por ida ao servidor na exportação: só um lote fica em memória por vez
+	private static final int EXPORT_BATCH_SIZE = 500;
+
+	// tickets por bulkWrite no preenchimento dos trigramas
+	private static final int FILL_BATCH_SIZE = 500;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Override
+	public Map<StatusEnum, Long> countGroupByStatus() {
+		Map<StatusEnum, Long> amounts = new EnumMap<StatusEnum, Long>(StatusEnum.class);
+		for (StatusEnum status : StatusEnum.values()) {
+			amounts.put(status, 0L);
+		}
+		// { $group: { _id: "$status", amount: { $sum: 1 } } }
+		Aggregation aggregation = newAggregation(group("status").count().as("amount"));
+		AggregationResults<Document> results = this.mongoTemplate.aggregate(aggregation, Ticket.class,
+				Document.class);
+		for (Document result : results) {
+			String status = result.getString("_id");
+			if (status != null) {
+				amounts.put(StatusEnum.valueOf(status), ((Number) result.get("amount")).longValue());
+			}
+		}
+		return amounts;
+	}
+
+	@Override
+	public Ticket findDetailById(String id) {
+		if (!ObjectId.isValid(id)) {
+			return null;
+		}
+		List<Document> pipeline = TicketPipelines.detail(this.mongoTemplate.getConverter(), new ObjectId(id));
+		Document detail = this.mongoTemplate.execute(Ticket.class,
+				collection -> collection.aggregate(pipeline).first());
+		return detail == null ? null : TicketPipelines.toDetail(this.mongoTemplate.getConverter(), detail);
+	}
+
+	@Override
+	public List<TicketSummaryView> findByFilterAfter(TicketFilter filter, TicketCursor after, int count) {
+		Criteria criteria = TicketCriteria.of(filter);
+		if (after != null) {
+			criteria = TicketCriteria.before(criteria, after.getDate(), new ObjectId(after.getId()));
+		}
+		Query query = new Query(criteria);
+		query.with(Sort.by(Direction.DESC, "date", "id")).limit(count);
+		return this.mongoTemplate.query(Ticket.class).as(TicketSummaryView.class).matching(query).all();
+	}
+
+	@Override
+	public Page<TicketSummaryView> findPageByFilter(TicketFilter filter, Pageable pageable) {
+		Query query = new Query(TicketCriteria.of(filter));
+		query.with(Sort.by(Direction.DESC, "date")).with(pageable);
+		List<TicketSummaryView> tickets = this.mongoTemplate.query(Ticket.class).as(TicketSummaryView.class)
+				.matching(query).all();
+		// o count só é feito quando a página não basta para saber o total
+		return PageableExecutionUtils.getPage(tickets, pageable, () -> countByFilter(filter));
+	}
+
+	@Override
+	public Slice<TicketSummaryView> findSliceByFilter(TicketFilter filter, Pageable pageable) {
+		Query query = new Query(TicketCriteria.of(filter));
+		query.with(Sort.by(Direction.DESC, "date", "id")).skip(pageable.getOffset())
+				.limit(pageable.getPageSize() + 1);
+		List<TicketSummaryView> tickets = this.mongoTemplate.query(Ticket.class).as(TicketSummaryView.class)
+				.matching(query).all();
+		boolean hasNext = tickets.size() > pageable.getPageSize();
+		if (hasNext) {
+			tickets = tickets.subList(0, pageable.getPageSize());
+		}
+		return new SliceImpl<TicketSummaryView>(tickets, pageable, hasNext);
+	}
+
+	@Override
+	public long countByFilter(TicketFilter filter) {
+		return this.mongoTemplate.count(new Query(TicketCriteria.of(filter)), Ticket.class);
+	}
+
+	@Override
+	public long estimatedCount() {
+		return this.mongoTemplate.execute(Ticket.class, collection -> collection.estimatedDocumentCount());
+	}
+
+	@Override
+	public TicketSearchPage searchText(String text, TicketFilter filter, TicketSearchCursor after, int count,
+			boolean facets) {
+		List<Document> pipeline = TicketPipelines.search(this.mongoTemplate.getConverter(), text, filter, after,
+				count, facets);
+		List<Document> documents = this.mongoTemplate.execute(Ticket.class,
+				collection -> collection.aggregate(pipeline).into(new ArrayList<Document>()));
+		return TicketPipelines.toSearchPage(this.mongoTemplate.getConverter(), documents, facets);
+	}
+
+	// preenche os trigramas dos tickets gravados antes do índice de título existir, em lotes: cada
+	// lote é uma consulta e um bulkWrite não ordenado, e sai da consulta depois de preenchido
+	@Override
+	public int fillTitleGrams() {
+		int filled = 0;
+		List<Ticket> tickets;
+		do {
+			Query query = new Query(where("titleGrams").exists(false)).limit(FILL_BATCH_SIZE);
+			query.fields().include("title");
+			tickets = this.mongoTemplate.find(query, Ticket.class);
+			if (tickets.isEmpty()) {
+				break;
+			}
+			BulkOperations operations = this.mongoTemplate.bulkOps(BulkMode.UNORDERED, Ticket.class);
+			for (Ticket ticket : tickets) {
+				// um save concorrente já grava os trigramas do título novo: não sobrescreve
+				operations.updateOne(new Query(where("id").is(ticket.getId()).and("titleGrams").exists(false)),
+						new Update().set("titleGrams", Trigrams.of(ticket.getTitle())));
+			}
+			filled += operations.execute().getModifiedCount();
+		} while (tickets.size() == FILL_BATCH_SIZE);
+		return filled;
+	}
+
+	@Override
+	public Ticket findAndRemove(String id) {
+		Query query = new Query(where("id").is(id));
+		query.fields().include("status").include("imageId");
+		return this.mongoTemplate.findAndRemove(query, Ticket.class);
+	}
+
+	@Override
+	public Ticket updateImageId(String id, String imageId) {
+		Query query = new Query(where("id").is(id));
+		query.fields().include("imageId");
+		return this.mongoTemplate.findAndModify(query, new Update().set("imageId", imageId), Ticket.class);
+	}
+
+	@Override
+	public Ticket changeStatus(String id, StatusEnum expected, StatusEnum status, User assignedUser) {
+		Query query = new Query(where("id").is(id).and("status").is(expected));
+		// só os campos alterados são enviados; a versão sobe para invalidar edições concorrentes
+		Update update = new Update().set("status", status).inc("version", 1);
+		if (assignedUser != null) {
+			update.set("assignedUser", assignedUser);
+		}
+		query.fields().exclude("description").exclude("titleGrams");
+		return this.mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+				Ticket.class);
+	}
+
+	@Override
+	public List<Ticket> findStatusByIds(Collection<String> ids) {
+		Query query = new Query(where("id").in(ids));
+		query.fields().include("status").include("version");
+		return this.mongoTemplate.find(query, Ticket.class);
+	}
+
+	@Override
+	public int changeStatus(List<Ticket> expected, StatusEnum status, User assignedUser) {
+		if (expected.isEmpty()) {
+			return 0;
+		}
+		BulkOperations operations = this.mongoTemplate.bulkOps(BulkMode.UNORDERED, Ticket.class);
+		for (Ticket ticket : expected) {
+			Query query = new Query(where("id").is(ticket.getId()).and("status").is(ticket.getStatus())
+					.and("version").is(ticket.getVersion()));
+			Update update = new Update().set("status", status).inc("version", 1);
+			if (assignedUser != null) {
+				update.set("assignedUser", assignedUser);
+			}
+			operations.updateOne(query, update);
+		}
+		return operations.execute().getModifiedCount();
+	}
+
+	@Override
+	public CloseableIterator<TicketExport> streamByFilter(TicketFilter filter) {
+		Document query = new QueryMapper(this.mongoTemplate.getConverter()).getMappedObject(
+				TicketCriteria.of(filter).getCriteriaObject(),
+				this.mongoTemplate.getConverter().getMappingContext().getPersistentEntity(Ticket.class));
+		Document projection = new Document("number", 1).append("title", 1).append("description", 1)
+				.append("status", 1).append("priority", 1).append("date", 1).append("user", 1)
+				.append("assignedUser", 1);
+		// os DBRef são lidos como estão (só o id), sem resolver os usuários
+		MongoCursor<Document> cursor = this.mongoTemplate.execute(Ticket.class,
+				collection -> collection.find(query).projection(projection)
+						.sort(new Document("date", -1).append("_id", -1)).batchSize(EXPORT_BATCH_SIZE).iterator());
+		return new CloseableIterator<TicketExport>() {
+
+			@Override
+			public boolean hasNext() {
+				return cursor.hasNext();
+			}
+
+			@Override
+			public TicketExport next() {
+				return toExport(cursor.next());
+			}
+
+			@Override
+			public void close() {
+				cursor.close();
+			}
+		};
+	}
+
+	private TicketExport toExport(Document document) {
+		TicketExport export = new TicketExport();
+		export.setId(document.getObjectId("_id").toHexString());
+		export.setNumber(document.getInteger("number"));
+		export.setTitle(document.getString("title"));
+		export.setDescription(document.getString("description"));
+		String status = document.getString("status");
+		export.setStatus(status == null ? null : StatusEnum.valueOf(status));
+		String priority = document.getString("priority");
+		export.setPriority(priority == null ? null : PriorityEnum.valueOf(priority));
+		export.setDate(document.getDate("date"));
+		export.setUserId(refId(document.get("user")));
+		export.setAssignedUserId(refId(document.get("assignedUser")));
+		return export;
+	}
+
+	private String refId(Object reference) {
+		return reference instanceof DBRef ? ((DBRef) reference).getId().toString() : null;
+	}
+
+	@Override
+	public List<String> findIdsToRenumber() {
+		// agrupa os ids por número, em ordem de id, e só traz os números repetidos ou ausentes
+		List<Document> pipeline = Arrays.asList(new Document("$sort", new Document("_id", 1)),
+				new Document("$group", new Document("_id", "$number").append("ids", new Document("$push", "$_id"))
+						.append("count", new Document("$sum", 1))),
+				new Document("$match", new Document("$or", Arrays.asList(new Document("count", new Document("$gt", 1)),
+						new Document("_id", null)))));
+		List<Document> groups = this.mongoTemplate.execute(Ticket.class,
+				collection -> collection.aggregate(pipeline).into(new ArrayList<Document>()));
+		List<String> ids = new ArrayList<String>();
+		for (Document group : groups) {
+			List<Object> groupIds = group.getList("ids", Object.class);
+			// sem número, todos recebem um; repetido, o mais antigo mantém o seu
+			int first = group.get("_id") == null ? 0 : 1;
+			for (Object id : groupIds.subList(first, groupIds.size())) {
+				ids.add(id.toString());
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	public void updateNumber(String id, int number) {
+		this.mongoTemplate.updateFirst(new Query(where("id").is(id)),
+				new Update().set("number", number).inc("version", 1), Ticket.class);
+	}
+
+	@Override
+	public long fillVersion() {
+		return this.mongoTemplate
+				.updateMulti(new Query(where("version").exists(false)), new Update().set("version", 0L), Ticket.class)
+				.getModifiedCount();
+	}
+}
@@ -0,0 +1,31 @@
+package com.fseiji.helpdesk.api.security.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.fseiji.helpdesk.api.security.model.RequestUser;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolve parâmetros do tipo RequestUser no modo reativo, a partir do usuário
+ * autenticado pelo JwtAuthenticationWebFilter
+ */
+public class ReactiveRequestUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+	@Override
+	public boolean supportsParameter(MethodParameter parameter) {
+		return RequestUser.class.equals(parameter.getParameterType());
+	}
+
+	@Override
+	public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext,
+			ServerWebExchange exchange) {
+		return ReactiveSecurityContextHolder.getContext().map(SecurityContext::getAuthentication).flatMap(
+				authentication -> Mono.<Object>justOrEmpty(RequestUserArgumentResolver.fromAuthentication(authentication)));
+	}
+}
@@ -0,0 +1,51 @@
+package com.fseiji.helpdesk.api.security.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import com.fseiji.helpdesk.api.enums.ProfileEnum;
+import com.fseiji.helpdesk.api.security.jwt.JwtUser;
+import com.fseiji.helpdesk.api.security.model.RequestUser;
+
+/**
+ * Resolve parâmetros do tipo RequestUser a partir do usuário autenticado no
+ * SecurityContext, uma única vez por requisição
+ */
+public class RequestUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+	private static final String ATTRIBUTE = RequestUser.class.getName();
+
+	@Override
+	public boolean supportsParameter(MethodParameter parameter) {
+		return RequestUser.class.equals(parameter.getParameterType());
+	}
+
+	@Override
+	public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+			NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+		Object requestUser = webRequest.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		if (requestUser == null) {
+			requestUser = fromAuthentication(SecurityContextHolder.getContext().getAuthentication());
+			if (requestUser != null) {
+				webRequest.setAttribute(ATTRIBUTE, requestUser, RequestAttributes.SCOPE_REQUEST);
+			}
+		}
+		return requestUser;
+	}
+
+	// também usado pelo ReactiveRequestUserArgumentResolver, com o SecurityContext do modo reativo
+	static RequestUser fromAuthentication(Authentication authentication) {
+		if (authentication == null || !(authentication.getPrincipal() instanceof JwtUser)) {
+			return null;
+		}
+		JwtUser jwtUser = (JwtUser) authentication.getPrincipal();
+		ProfileEnum profile = ProfileEnum.valueOf(jwtUser.getAuthorities().iterator().next().getAuthority());
+		return new RequestUser(jwtUser.getId(), jwtUser.getUsername(), profile);
+	}
+}
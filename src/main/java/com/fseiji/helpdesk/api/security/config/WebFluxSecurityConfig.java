@@ -0,0 +1,78 @@
+package com.fseiji.helpdesk.api.security.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+import com.fseiji.helpdesk.api.security.jwt.JwtAuthenticationWebFilter;
+import com.fseiji.helpdesk.api.security.jwt.JwtAuthenticator;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Segurança do modo reativo (spring.main.web-application-type=reactive), com as
+ * mesmas regras do WebSecurityConfig. Os tokens são emitidos pelos nós em modo
+ * servlet (/api/auth): basta usar o mesmo jwt.secret
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+public class WebFluxSecurityConfig {
+
+	@Autowired
+	private JwtAuthenticator jwtAuthenticator;
+
+	@Bean
+	public PasswordEncoder passwordEncoder() {
+		return new BCryptPasswordEncoder();
+	}
+
+	// com o Tomcat também no classpath, o Spring Boot escolheria o Tomcat para o servidor reativo
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	// no lugar do usuário gerado pelo Spring Boot; a consulta bloqueante roda fora das threads do servidor
+	@Bean
+	public ReactiveUserDetailsService reactiveUserDetailsService(UserDetailsService userDetailsService) {
+		return username -> Mono.fromCallable(() -> userDetailsService.loadUserByUsername(username))
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	@Bean
+	public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
+		return http.csrf().disable().httpBasic().disable().formLogin().disable().logout().disable()
+				.exceptionHandling().authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED))
+				.and()
+				// sem sessão: a autenticação vem do token a cada requisição
+				.securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+				.authorizeExchange()
+				.pathMatchers(HttpMethod.GET, "/", "/*.html", "/favicon.ico", "/**/*.html", "/**/*.css", "/**/*.js")
+				.permitAll()
+				.pathMatchers("/api/auth/**").permitAll()
+				// preflight de CORS respondido pelo @CrossOrigin do controller (no servlet, pelo SimpleCORSFilter)
+				.pathMatchers(HttpMethod.OPTIONS).permitAll()
+				.anyExchange().authenticated().and()
+				.addFilterAt(new JwtAuthenticationWebFilter(this.jwtAuthenticator), SecurityWebFiltersOrder.AUTHENTICATION)
+				.build();
+	}
+}
@@ -1,6 +1,8 @@
 package com.fseiji.helpdesk.api.security.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -20,6 +22,7 @@ import com.fseiji.helpdesk.api.security.jwt.JwtAuthenticationEntryPoint;
 import com.fseiji.helpdesk.api.security.jwt.JwtAuthenticationTokenFilter;
 
 @Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
@@ -3,6 +3,8 @@ package com.fseiji.helpdesk.api.security.controller;
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -22,6 +24,7 @@ import com.fseiji.helpdesk.api.security.model.CurrentUser;
 import com.fseiji.helpdesk.api.service.UserService;
 
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @CrossOrigin(origins = "*")
 public class AuthenticationRestController {
 
@@ -0,0 +1,44 @@
+package com.fseiji.helpdesk.api.security.jwt;
+
+import java.util.Optional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Filtro do modo reativo com a mesma autenticação do JwtAuthenticationTokenFilter.
+ * A consulta do usuário (quando não está no cache) é bloqueante e roda fora
+ * das threads do servidor
+ */
+public class JwtAuthenticationWebFilter implements WebFilter {
+
+	private final JwtAuthenticator jwtAuthenticator;
+
+	public JwtAuthenticationWebFilter(JwtAuthenticator jwtAuthenticator) {
+		this.jwtAuthenticator = jwtAuthenticator;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		String authToken = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+		if (authToken == null) {
+			return chain.filter(exchange);
+		}
+		return Mono.fromCallable(() -> Optional.ofNullable(this.jwtAuthenticator.authenticate(authToken)))
+				.subscribeOn(Schedulers.boundedElastic())
+				// usuário removido depois da emissão do token: segue sem autenticação, como um token inválido
+				.onErrorReturn(UsernameNotFoundException.class, Optional.<UsernamePasswordAuthenticationToken>empty())
+				.flatMap(authentication -> authentication.isPresent()
+						? chain.filter(exchange)
+								.subscriberContext(ReactiveSecurityContextHolder.withAuthentication(authentication.get()))
+						: chain.filter(exchange));
+	}
+}
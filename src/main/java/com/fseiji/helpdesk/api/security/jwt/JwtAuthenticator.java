@@ -0,0 +1,35 @@
+package com.fseiji.helpdesk.api.security.jwt;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Autenticação a partir do token do header Authorization, comum ao filtro do
+ * modo servlet (JwtAuthenticationTokenFilter) e ao do modo reativo
+ * (JwtAuthenticationWebFilter)
+ */
+@Component
+public class JwtAuthenticator {
+
+	@Autowired
+	private UserDetailsService userDetailsService;
+
+	@Autowired
+	private JwtTokenUtil jwtTokenUtil;
+
+	// null se o token for inválido ou estiver expirado; UsernameNotFoundException se o usuário não existir mais
+	public UsernamePasswordAuthenticationToken authenticate(String authToken) {
+		String username = this.jwtTokenUtil.getUsernameFromToken(authToken);
+		if (username == null) {
+			return null;
+		}
+		UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+		if (!this.jwtTokenUtil.validateToken(authToken, userDetails)) {
+			return null;
+		}
+		return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+	}
+}
@@ -1,20 +1,34 @@
 package com.fseiji.helpdesk.api.security.jwt;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 @Component
-public class JwtTokenUtil implements Serializable {
+public class JwtTokenUtil implements Serializable, MeterBinder {
 
 	private static final long serialVersionUID = -3301605591108950415L;
 	static final String CLAIM_KEY_USERNAME = "sub";
@@ -27,6 +41,23 @@ public class JwtTokenUtil implements Serializable {
 	@Value("${jwt.expiration}")
 	private Long expiration;
 
+	@Value("${jwt.cache.maximum-size:10000}")
+	private long cacheMaximumSize;
+
+	// claims já verificados, indexados pelo hash do token e válidos até o "exp" do token
+	private transient Cache<String, Claims> verifiedClaims;
+
+	@PostConstruct
+	void init() {
+		this.verifiedClaims = Caffeine.newBuilder().maximumSize(this.cacheMaximumSize)
+				.expireAfter(new ExpiresWithToken()).recordStats().build();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, this.verifiedClaims, "jwtClaims");
+	}
+
 	// obtem o username que está dentro do token
 	public String getUsernameFromToken(String token) {
 		String username;
@@ -51,17 +82,36 @@ public class JwtTokenUtil implements Serializable {
 		return expiration;
 	}
 
-	// realiza o parse do token JWT para extrair as informações contidas no corpo
+	// realiza o parse do token JWT para extrair as informações contidas no corpo;
+	// a assinatura de cada token é verificada apenas uma vez enquanto ele estiver no cache
 	private Claims getClaimsFromToken(String token) {
-		Claims claims;
+		if (token == null) {
+			return null;
+		}
+		String key = digest(token);
+		Claims claims = this.verifiedClaims.getIfPresent(key);
+		if (claims != null) {
+			return claims;
+		}
 		try {
 			claims = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+			this.verifiedClaims.put(key, claims);
 		} catch (Exception e) {
 			claims = null;
 		}
 		return claims;
 	}
 
+	private String digest(String token) {
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	// verifica se token está expirado
 	private Boolean isTokenExpired(String token) {
 		final Date expiration = getExpirationDateFromToken(token);
@@ -96,7 +146,8 @@ public class JwtTokenUtil implements Serializable {
 	public String refreshToken(String token) {
 		String refreshedToken;
 		try {
-			final Claims claims = getClaimsFromToken(token);
+			// copia os claims para não alterar a instância compartilhada pelo cache
+			final Map<String, Object> claims = new HashMap<>(getClaimsFromToken(token));
 			claims.put(CLAIM_KEY_CREATED, new Date());
 			refreshedToken = doGenerateToken(claims);
 		} catch (Exception e) {
@@ -111,4 +162,28 @@ public class JwtTokenUtil implements Serializable {
 		final String username = getUsernameFromToken(token);
 		return (username.equals(user.getUsername()) && !isTokenExpired(token));
 	}
+
+	// remove a entrada do cache no instante em que o token expira
+	private class ExpiresWithToken implements Expiry<String, Claims> {
+
+		@Override
+		public long expireAfterCreate(String key, Claims claims, long currentTime) {
+			Date expirationDate = claims.getExpiration();
+			if (expirationDate == null) {
+				return TimeUnit.SECONDS.toNanos(expiration);
+			}
+			long millis = expirationDate.getTime() - System.currentTimeMillis();
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(millis, 0));
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, claims, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
 }
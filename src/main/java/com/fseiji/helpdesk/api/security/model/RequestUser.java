@@ -0,0 +1,44 @@
+package com.fseiji.helpdesk.api.security.model;
+
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.ProfileEnum;
+
+/**
+ * Usuário da requisição, montado a partir do JwtUser já autenticado pelo
+ * filtro. Pode ser recebido como parâmetro nos métodos dos controllers sem
+ * nova consulta ao banco
+ */
+public class RequestUser {
+
+	private final String id;
+	private final String email;
+	private final ProfileEnum profile;
+
+	public RequestUser(String id, String email, ProfileEnum profile) {
+		this.id = id;
+		this.email = email;
+		this.profile = profile;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public ProfileEnum getProfile() {
+		return profile;
+	}
+
+	// referência ao User (o @DBRef só precisa do id)
+	public User toUser() {
+		User user = new User();
+		user.setId(this.id);
+		user.setEmail(this.email);
+		user.setProfile(this.profile);
+		return user;
+	}
+
+}
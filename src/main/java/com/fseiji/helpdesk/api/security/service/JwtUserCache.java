@@ -0,0 +1,64 @@
+package com.fseiji.helpdesk.api.security.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fseiji.helpdesk.api.security.jwt.JwtUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache dos usuários autenticados, indexado pelo email, para que cada
+ * requisição não precise buscar o usuário no MongoDB. As alterações feitas
+ * neste nó removem a entrada na hora; as feitas em outros nós são vistas
+ * depois do tempo de expiração
+ */
+@Component
+public class JwtUserCache implements MeterBinder {
+
+	@Value("${user.cache.maximum-size:10000}")
+	private long maximumSize;
+
+	@Value("${user.cache.expiration:300}")
+	private long expiration;
+
+	private Cache<String, JwtUser> users;
+
+	@PostConstruct
+	void init() {
+		this.users = Caffeine.newBuilder().maximumSize(this.maximumSize)
+				.expireAfterWrite(this.expiration, TimeUnit.SECONDS).recordStats().build();
+	}
+
+	// retorna o usuário do cache ou o carrega com loader; null não é guardado
+	public JwtUser get(String email, Function<String, JwtUser> loader) {
+		return this.users.get(email, loader);
+	}
+
+	public void evict(String email) {
+		if (email != null) {
+			this.users.invalidate(email);
+		}
+	}
+
+	// usado quando o email atual do usuário não é conhecido (ex.: o email foi alterado)
+	public void evictById(String id) {
+		if (id != null) {
+			this.users.asMap().values().removeIf(user -> id.equals(user.getId()));
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, this.users, "jwtUsers");
+	}
+}
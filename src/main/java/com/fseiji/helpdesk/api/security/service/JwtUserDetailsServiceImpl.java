@@ -7,6 +7,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.security.jwt.JwtUser;
 import com.fseiji.helpdesk.api.security.jwt.JwtUserFactory;
 import com.fseiji.helpdesk.api.service.UserService;
 
@@ -16,13 +17,21 @@ public class JwtUserDetailsServiceImpl implements UserDetailsService {
 	@Autowired
 	private UserService userService;
 
+	@Autowired
+	private JwtUserCache jwtUserCache;
+
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-		User user = this.userService.findByEmail(username);
-		if (user == null) {
+		JwtUser jwtUser = this.jwtUserCache.get(username, this::loadUser);
+		if (jwtUser == null) {
 			throw new UsernameNotFoundException(String.format("No user found with username '%s'.", username));
 		} else {
-			return JwtUserFactory.create(user);
+			return jwtUser;
 		}
 	}
+
+	private JwtUser loadUser(String username) {
+		User user = this.userService.findByEmail(username);
+		return user == null ? null : JwtUserFactory.create(user);
+	}
 }
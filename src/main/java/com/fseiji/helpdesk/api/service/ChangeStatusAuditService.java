@@ -0,0 +1,9 @@
+package com.fseiji.helpdesk.api.service;
+
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+
+public interface ChangeStatusAuditService {
+
+	// grava o registro da mudança de status; no modo assíncrono só enfileira
+	void record(ChangeStatus changeStatus);
+}
@@ -0,0 +1,13 @@
+package com.fseiji.helpdesk.api.service;
+
+/**
+ * Outra requisição com a mesma Idempotency-Key ainda está criando o ticket
+ */
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public IdempotencyKeyInProgressException() {
+		super("A request with this Idempotency-Key is still in progress");
+	}
+}
@@ -0,0 +1,13 @@
+package com.fseiji.helpdesk.api.service;
+
+/**
+ * A Idempotency-Key já foi usada com um corpo de requisição diferente
+ */
+public class IdempotencyKeyMismatchException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public IdempotencyKeyMismatchException() {
+		super("Idempotency-Key was already used with a different request");
+	}
+}
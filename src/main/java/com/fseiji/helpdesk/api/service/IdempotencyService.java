@@ -0,0 +1,15 @@
+package com.fseiji.helpdesk.api.service;
+
+public interface IdempotencyService {
+
+	// reserva a chave para esta requisição e devolve null; se a chave já criou um ticket, devolve o
+	// id dele. IdempotencyKeyInProgressException se outra requisição com a mesma chave ainda está em
+	// andamento e IdempotencyKeyMismatchException se a chave foi usada com outro fingerprint
+	String reserve(String userId, String key, String fingerprint);
+
+	// associa o ticket criado à chave reservada
+	void complete(String userId, String key, String fingerprint, String ticketId);
+
+	// libera a chave quando a criação falha, para que uma nova tentativa possa ser feita
+	void release(String userId, String key);
+}
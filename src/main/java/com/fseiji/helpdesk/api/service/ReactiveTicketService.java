@@ -0,0 +1,28 @@
+package com.fseiji.helpdesk.api.service;
+
+import org.springframework.data.domain.Page;
+
+import com.fseiji.helpdesk.api.dto.Summary;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.Ticket;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Leituras de ticket do modo reativo (spring.main.web-application-type=reactive),
+ * com o mesmo resultado dos métodos equivalentes de TicketService
+ */
+public interface ReactiveTicketService {
+
+	Mono<Ticket> findDetail(String id);
+
+	Mono<Page<TicketSummaryView>> listTicket(int page, int count);
+
+	Mono<Page<TicketSummaryView>> findByCurrentUser(int page, int count, String userId);
+
+	Mono<TicketSearchPage> search(String text, String cursor, int count, TicketFilter filter, boolean facets);
+
+	Mono<Summary> findSummary();
+}
@@ -0,0 +1,8 @@
+package com.fseiji.helpdesk.api.service;
+
+public interface SequenceService {
+
+	long next(String sequence);
+
+	void raiseTo(String sequence, long value);
+}
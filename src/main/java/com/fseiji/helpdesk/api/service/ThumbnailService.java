@@ -0,0 +1,12 @@
+package com.fseiji.helpdesk.api.service;
+
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+
+public interface ThumbnailService {
+
+	boolean generate(String imageId);
+
+	GridFsResource findThumbnail(String imageId);
+
+	void deleteThumbnail(String imageId);
+}
@@ -0,0 +1,17 @@
+package com.fseiji.helpdesk.api.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.springframework.data.util.CloseableIterator;
+
+import com.fseiji.helpdesk.api.dto.TicketExport;
+import com.fseiji.helpdesk.api.enums.ExportFormatEnum;
+
+public interface TicketExportService {
+
+	// grava os tickets no formato pedido à medida que são lidos e fecha o cursor ao terminar,
+	// inclusive quando a escrita falha (cliente desconectado)
+	void write(CloseableIterator<TicketExport> tickets, ExportFormatEnum format, OutputStream content)
+			throws IOException;
+}
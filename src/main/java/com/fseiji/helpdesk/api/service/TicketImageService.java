@@ -0,0 +1,19 @@
+package com.fseiji.helpdesk.api.service;
+
+import java.io.InputStream;
+
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+
+public interface TicketImageService {
+
+	String storeImage(String ticketId, InputStream content, String filename, String contentType);
+
+	GridFsResource findImage(String imageId);
+
+	void deleteImage(String imageId);
+
+	int migrateInlineImages();
+
+	// migra só a imagem inline deste ticket, para que ele possa ser regravado antes da migração completa
+	void migrateInlineImage(String ticketId);
+}
@@ -0,0 +1,13 @@
+package com.fseiji.helpdesk.api.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fseiji.helpdesk.api.dto.TicketImportSummary;
+import com.fseiji.helpdesk.api.entity.User;
+
+public interface TicketImportService {
+
+	// importa um ticket por linha (NDJSON), lendo o conteúdo como stream e gravando em lotes
+	TicketImportSummary importTickets(InputStream content, User user) throws IOException;
+}
@@ -1,12 +1,24 @@
 package com.fseiji.helpdesk.api.service;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Component;
 
+import com.fseiji.helpdesk.api.dto.CursorPage;
+import com.fseiji.helpdesk.api.dto.Summary;
+import com.fseiji.helpdesk.api.dto.TicketExport;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketStatusResult;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
 import com.fseiji.helpdesk.api.entity.ChangeStatus;
 import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
 
 @Component
 public interface TicketService {
@@ -15,26 +27,57 @@ public interface TicketService {
 
 	Optional<Ticket> findById(String id);
 
+	Ticket findDetail(String id);
+
 	void delete(String id);
 
-	Page<Ticket> listTicket(int page, int count);
+	Page<TicketSummaryView> listTicket(int page, int count);
+
+	CursorPage<TicketSummaryView> listTicketAfter(String cursor, int count, TicketFilter filter);
+
+	TicketSearchPage search(String text, String cursor, int count, TicketFilter filter, boolean facets);
+
+	Slice<TicketSummaryView> findSlice(int page, int count, TicketFilter filter);
+
+	Page<TicketSummaryView> findWithApproximateTotal(int page, int count, TicketFilter filter);
 
 	ChangeStatus createChangeStatus(ChangeStatus changeStatus);
 
 	Iterable<ChangeStatus> listChangeStatus(String ticketId);
 
-	Page<Ticket> findByCurrentUser(int page, int count, String userId);
+	Page<TicketSummaryView> findByCurrentUser(int page, int count, String userId);
 
-	Page<Ticket> findByParameters(int page, int count, String title, String status, String priority);
+	Page<TicketSummaryView> findByParameters(int page, int count, String title, String status, String priority);
 
-	Page<Ticket> findByParametersAndCurrentUser(int page, int count, String title, String status, String priority,
+	Page<TicketSummaryView> findByParametersAndCurrentUser(int page, int count, String title, String status, String priority,
 			String userId);
 
-	Page<Ticket> findByNumber(int page, int count, Integer number);
+	Page<TicketSummaryView> findByNumber(int page, int count, Integer number);
 
 	Iterable<Ticket> findAll();
 
-	Page<Ticket> findByParametersAndAssignedUser(int page, int count, String title, String status, String priority,
+	// tickets do filtro lidos direto do cursor, sem carregar a coleção em memória; deve ser fechado
+	CloseableIterator<TicketExport> streamByFilter(TicketFilter filter);
+
+	Page<TicketSummaryView> findByParametersAndAssignedUser(int page, int count, String title, String status, String priority,
 			String assignedUser);
 
+	// muda o status somente se o atual ainda for o esperado (nulo: o atual do banco); null se o
+	// ticket não existir e OptimisticLockingFailureException se o status já foi alterado
+	Ticket changeStatus(String id, StatusEnum expected, StatusEnum status, User assignedUser);
+
+	// muda o status de vários tickets de uma vez (bulkWrite) e grava o histórico em lote;
+	// ao mudar para ASSIGNED, user passa a ser o responsável
+	List<TicketStatusResult> changeStatus(List<String> ids, StatusEnum status, User user);
+
+	Summary findSummary();
+
+	// cria os contadores a partir da coleção de tickets se eles ainda não existem; seguro com
+	// escritas acontecendo ao mesmo tempo (usado na subida de cada nó)
+	Summary initSummary();
+
+	// recalcula e sobrescreve os contadores; supõe que nenhum ticket está sendo gravado ao mesmo
+	// tempo, senão os $inc feitos entre a contagem e a gravação são perdidos
+	Summary reconcileSummary();
+
 }
@@ -0,0 +1,302 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.repository.ChangeStatusRepository;
+import com.fseiji.helpdesk.api.service.ChangeStatusAuditService;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Histórico das mudanças de status. Com audit.async.enabled os registros vão
+ * para uma fila limitada e uma thread grava em lotes (insertMany) quando o
+ * lote enche ou o intervalo passa, tirando a segunda escrita do tempo de
+ * resposta. Com a fila cheia a requisição espera por espaço e, esgotado o
+ * tempo, grava ela mesma. Um lote que falha é regravado registro a registro
+ * (exceto se o banco estiver inacessível) e os que ainda falharem são tentados
+ * de novo; no desligamento a fila é esvaziada até o prazo
+ * audit.async.shutdown-timeout e o que não puder ser gravado é registrado no
+ * log, um a um, como perdido
+ */
+@Service
+public class ChangeStatusAuditServiceImpl implements ChangeStatusAuditService, MeterBinder {
+
+	private static final Logger log = LoggerFactory.getLogger(ChangeStatusAuditServiceImpl.class);
+
+	// maior espera (ms) da thread sem conferir se a aplicação está desligando
+	private static final long POLL_INTERVAL = 50;
+
+	// pausa (ms) da requisição entre as tentativas de colocar o registro na fila cheia
+	private static final long OFFER_PAUSE = 5;
+
+	@Autowired
+	private ChangeStatusRepository changeStatusRepository;
+
+	@Value("${audit.async.enabled:false}")
+	private boolean async;
+
+	@Value("${audit.async.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${audit.async.batch-size:500}")
+	private int batchSize;
+
+	// tempo máximo (ms) que um registro espera na fila pelo resto do lote
+	@Value("${audit.async.flush-interval:200}")
+	private long flushInterval;
+
+	// tempo máximo (ms) que a requisição espera por espaço na fila antes de gravar ela mesma
+	@Value("${audit.async.offer-timeout:1000}")
+	private long offerTimeout;
+
+	// pausa (ms) antes de tentar de novo um lote que não pôde ser gravado
+	@Value("${audit.async.retry-interval:1000}")
+	private long retryInterval;
+
+	// prazo (ms) do desligamento para gravar o que está na fila; o resto é registrado como perdido
+	@Value("${audit.async.shutdown-timeout:10000}")
+	private long shutdownTimeout;
+
+	private BlockingQueue<ChangeStatus> queue;
+
+	private Thread writer;
+
+	private volatile boolean running;
+
+	// instante (System.nanoTime) em que a thread desiste de gravar; definido no desligamento
+	private volatile long shutdownDeadline;
+
+	// record() enfileira com a leitura, sem esperar por espaço; o desligamento troca running com a
+	// escrita, então nenhum registro entra na fila depois que o desligamento começou
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// registros que a thread não conseguiu gravar até parar, para a última tentativa no desligamento
+	private List<ChangeStatus> unwritten = new ArrayList<ChangeStatus>();
+
+	private final AtomicLong writeFailures = new AtomicLong();
+
+	private final AtomicLong lost = new AtomicLong();
+
+	@PostConstruct
+	void init() {
+		if (!this.async) {
+			return;
+		}
+		this.queue = new ArrayBlockingQueue<ChangeStatus>(this.queueCapacity);
+		this.running = true;
+		this.writer = new Thread(this::writeBehind, "change-status-audit");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@PreDestroy
+	void shutdown() throws InterruptedException {
+		if (this.writer == null) {
+			return;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.shutdownTimeout);
+		this.shutdownDeadline = deadline;
+		this.lock.writeLock().lock();
+		try {
+			this.running = false;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+		this.writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+		List<ChangeStatus> batch = new ArrayList<ChangeStatus>();
+		boolean stuck = this.writer.isAlive();
+		if (stuck) {
+			// presa em uma gravação: o lote que ela segura pode ou não chegar ao banco
+			log.error("Change status writer did not stop within {} ms", this.shutdownTimeout);
+		} else {
+			// o que a thread não conseguiu gravar
+			batch.addAll(this.unwritten);
+		}
+		// e o que entrou na fila depois da última leitura; com o prazo esgotado, não há nova tentativa
+		this.queue.drainTo(batch);
+		List<ChangeStatus> failed = stuck || System.nanoTime() - deadline >= 0 ? batch : write(batch);
+		if (!failed.isEmpty()) {
+			log.error("{} change status records lost on shutdown", failed.size());
+		}
+		for (ChangeStatus changeStatus : failed) {
+			this.lost.incrementAndGet();
+			log.error("Change status record lost: ticket={}, status={}, date={}, user={}",
+					changeStatus.getTicket() == null ? null : changeStatus.getTicket().getId(),
+					changeStatus.getStatus(), changeStatus.getDateChangeStatus(),
+					changeStatus.getUserChange() == null ? null : changeStatus.getUserChange().getId());
+		}
+	}
+
+	@Override
+	public void record(ChangeStatus changeStatus) {
+		if (!enqueue(changeStatus)) {
+			this.changeStatusRepository.save(changeStatus);
+		}
+	}
+
+	// a espera por espaço acontece fora do lock, para não segurar o desligamento
+	private boolean enqueue(ChangeStatus changeStatus) {
+		if (!this.async) {
+			return false;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.offerTimeout);
+		while (true) {
+			this.lock.readLock().lock();
+			try {
+				if (!this.running) {
+					return false;
+				}
+				if (this.queue.offer(changeStatus)) {
+					return true;
+				}
+			} finally {
+				this.lock.readLock().unlock();
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			try {
+				TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(OFFER_PAUSE)));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+
+	private void writeBehind() {
+		List<ChangeStatus> batch = new ArrayList<ChangeStatus>(this.batchSize);
+		while ((this.running || !this.queue.isEmpty()) && !expired()) {
+			try {
+				if (batch.isEmpty() || !this.running) {
+					fill(batch);
+				} else {
+					// lote que falhou: nova tentativa depois da pausa, sem ler mais da fila; com a fila
+					// cheia as requisições voltam a gravar elas mesmas e veem o erro
+					Thread.sleep(this.retryInterval);
+				}
+			} catch (InterruptedException e) {
+				// ninguém interrompe esta thread: o fim é sinalizado por running
+			}
+			List<ChangeStatus> failed = write(batch);
+			batch.clear();
+			batch.addAll(failed);
+		}
+		this.unwritten = batch;
+	}
+
+	private boolean expired() {
+		return !this.running && System.nanoTime() - this.shutdownDeadline >= 0;
+	}
+
+	// espera o primeiro registro e junta os seguintes até completar o lote ou passar o intervalo;
+	// as esperas são curtas para perceber logo o desligamento
+	private void fill(List<ChangeStatus> batch) throws InterruptedException {
+		ChangeStatus first = this.queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+		if (first == null) {
+			return;
+		}
+		batch.add(first);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.flushInterval);
+		while (batch.size() < this.batchSize) {
+			this.queue.drainTo(batch, this.batchSize - batch.size());
+			long remaining = deadline - System.nanoTime();
+			// desligando: grava o que já está na fila sem esperar o intervalo
+			if (batch.size() >= this.batchSize || remaining <= 0 || !this.running) {
+				return;
+			}
+			ChangeStatus next = this.queue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(POLL_INTERVAL)),
+					TimeUnit.NANOSECONDS);
+			if (next != null) {
+				batch.add(next);
+			}
+		}
+	}
+
+	// grava o lote em um insertMany; se falhar, grava um a um. Os ids são definidos antes, então
+	// regravar um registro que o insertMany chegou a gravar não o duplica. Com o banco inacessível
+	// gravar um a um só multiplicaria as esperas: o lote todo volta como falho. Devolve os que falharam
+	private List<ChangeStatus> write(List<ChangeStatus> batch) {
+		if (batch.isEmpty()) {
+			return Collections.emptyList();
+		}
+		for (ChangeStatus changeStatus : batch) {
+			if (changeStatus.getId() == null) {
+				changeStatus.setId(new ObjectId().toHexString());
+			}
+		}
+		try {
+			this.changeStatusRepository.insert(batch);
+			return Collections.emptyList();
+		} catch (RuntimeException e) {
+			if (unavailable(e)) {
+				log.warn("Failed to write {} change status records, database unavailable", batch.size(), e);
+				this.writeFailures.addAndGet(batch.size());
+				return new ArrayList<ChangeStatus>(batch);
+			}
+			log.warn("Failed to write {} change status records in batch, writing one by one", batch.size(), e);
+		}
+		List<ChangeStatus> failed = new ArrayList<ChangeStatus>();
+		for (int i = 0; i < batch.size(); i++) {
+			try {
+				this.changeStatusRepository.save(batch.get(i));
+			} catch (RuntimeException e) {
+				if (unavailable(e)) {
+					// os que faltam nem são tentados
+					this.writeFailures.addAndGet(batch.size() - i);
+					failed.addAll(batch.subList(i, batch.size()));
+					break;
+				}
+				this.writeFailures.incrementAndGet();
+				failed.add(batch.get(i));
+			}
+		}
+		if (!failed.isEmpty()) {
+			log.error("Failed to write {} change status records, retrying", failed.size());
+		}
+		return failed;
+	}
+
+	// falhas de conexão ou de tempo, em que tentar de novo logo em seguida também falharia
+	private static boolean unavailable(RuntimeException e) {
+		return e instanceof DataAccessResourceFailureException || e instanceof TransientDataAccessException
+				|| e instanceof MongoSocketException || e instanceof MongoTimeoutException;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("audit.queue.size", this, audit -> audit.queue == null ? 0 : audit.queue.size())
+				.description("Change status records waiting to be written").register(registry);
+		FunctionCounter.builder("audit.write.failures", this.writeFailures, AtomicLong::get)
+				.description("Change status record writes that failed and were retried").register(registry);
+		FunctionCounter.builder("audit.records.lost", this.lost, AtomicLong::get)
+				.description("Change status records that could not be written before shutdown").register(registry);
+	}
+}
@@ -0,0 +1,106 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import com.fseiji.helpdesk.api.entity.IdempotencyKey;
+import com.fseiji.helpdesk.api.repository.IdempotencyKeyRepository;
+import com.fseiji.helpdesk.api.service.IdempotencyKeyInProgressException;
+import com.fseiji.helpdesk.api.service.IdempotencyKeyMismatchException;
+import com.fseiji.helpdesk.api.service.IdempotencyService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Chaves de idempotência da criação de ticket. A reserva é um insert com a
+ * chave como _id, então só uma requisição ganha mesmo entre vários nós; as
+ * chaves já concluídas ficam também em um cache local, que responde às
+ * repetições sem ir ao banco. Cada chave guarda o fingerprint do corpo da
+ * requisição que a reservou, e uma repetição com outro corpo é recusada
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+	@Autowired
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+
+	// tempo (segundos) que uma chave concluída continua valendo
+	@Value("${idempotency.expiration:86400}")
+	private long expiration;
+
+	// tempo (segundos) que uma reserva sem ticket segura a chave, caso o nó caia no meio da criação
+	@Value("${idempotency.lock-timeout:60}")
+	private long lockTimeout;
+
+	@Value("${idempotency.cache.maximum-size:10000}")
+	private long cacheMaximumSize;
+
+	private Cache<String, IdempotencyKey> completed;
+
+	@PostConstruct
+	void init() {
+		this.completed = Caffeine.newBuilder().maximumSize(this.cacheMaximumSize)
+				.expireAfterWrite(this.expiration, TimeUnit.SECONDS).build();
+	}
+
+	@Override
+	public String reserve(String userId, String key, String fingerprint) {
+		String id = id(userId, key);
+		IdempotencyKey completedKey = this.completed.getIfPresent(id);
+		if (completedKey != null) {
+			return replay(completedKey, fingerprint);
+		}
+		try {
+			this.idempotencyKeyRepository.insert(new IdempotencyKey(id, fingerprint, expiresAt(this.lockTimeout)));
+			return null;
+		} catch (DuplicateKeyException e) {
+			Optional<IdempotencyKey> existing = this.idempotencyKeyRepository.findById(id);
+			if (existing.isPresent()) {
+				// outro corpo é recusado mesmo com a primeira requisição ainda em andamento
+				String ticketId = replay(existing.get(), fingerprint);
+				if (ticketId != null) {
+					this.completed.put(id, existing.get());
+					return ticketId;
+				}
+			}
+			throw new IdempotencyKeyInProgressException();
+		}
+	}
+
+	// chaves gravadas antes do fingerprint existir não têm com o que comparar
+	private String replay(IdempotencyKey idempotencyKey, String fingerprint) {
+		if (idempotencyKey.getFingerprint() != null && !idempotencyKey.getFingerprint().equals(fingerprint)) {
+			throw new IdempotencyKeyMismatchException();
+		}
+		return idempotencyKey.getTicketId();
+	}
+
+	@Override
+	public void complete(String userId, String key, String fingerprint, String ticketId) {
+		IdempotencyKey idempotencyKey = new IdempotencyKey(id(userId, key), fingerprint, expiresAt(this.expiration));
+		idempotencyKey.setTicketId(ticketId);
+		this.idempotencyKeyRepository.save(idempotencyKey);
+		this.completed.put(idempotencyKey.getId(), idempotencyKey);
+	}
+
+	@Override
+	public void release(String userId, String key) {
+		this.idempotencyKeyRepository.deleteById(id(userId, key));
+	}
+
+	private String id(String userId, String key) {
+		return userId + ":" + key;
+	}
+
+	private Date expiresAt(long seconds) {
+		return new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds));
+	}
+}
@@ -0,0 +1,78 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.fseiji.helpdesk.api.dto.Summary;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchCursor;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSearchResult;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.repository.ReactiveStatusCounterRepository;
+import com.fseiji.helpdesk.api.repository.ReactiveTicketRepository;
+import com.fseiji.helpdesk.api.service.ReactiveTicketService;
+
+import reactor.core.publisher.Mono;
+
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveTicketServiceImpl implements ReactiveTicketService {
+
+	@Autowired
+	private ReactiveTicketRepository ticketRepository;
+
+	@Autowired
+	private ReactiveStatusCounterRepository statusCounterRepository;
+
+	@Override
+	public Mono<Ticket> findDetail(String id) {
+		return this.ticketRepository.findDetailById(id);
+	}
+
+	@Override
+	public Mono<Page<TicketSummaryView>> listTicket(int page, int count) {
+		return this.ticketRepository.findPageByFilter(new TicketFilter(), PageRequest.of(page, count));
+	}
+
+	@Override
+	public Mono<Page<TicketSummaryView>> findByCurrentUser(int page, int count, String userId) {
+		TicketFilter filter = new TicketFilter();
+		filter.setUserId(userId);
+		return this.ticketRepository.findPageByFilter(filter, PageRequest.of(page, count));
+	}
+
+	@Override
+	public Mono<TicketSearchPage> search(String text, String cursor, int count, TicketFilter filter, boolean facets) {
+		TicketSearchCursor after = cursor == null || cursor.isEmpty() ? null : TicketSearchCursor.decode(cursor);
+		// um ticket a mais indica se existe uma próxima página
+		return this.ticketRepository.searchText(text, filter, after, count + 1, facets).map(page -> {
+			List<TicketSearchResult> tickets = page.getContent();
+			String nextCursor = null;
+			if (tickets.size() > count) {
+				tickets = tickets.subList(0, count);
+				nextCursor = TicketSearchCursor.of(tickets.get(count - 1)).encode();
+			}
+			return new TicketSearchPage(tickets, nextCursor, page.getFacets());
+		});
+	}
+
+	// sem o documento dos contadores, recalcula a partir da coleção de tickets, como em TicketServiceImpl
+	@Override
+	public Mono<Summary> findSummary() {
+		return this.statusCounterRepository.findById(StatusCounter.TICKET)
+				.map(counter -> Summary.of(counter.getAmounts()))
+				// sem o documento, cria com a contagem, sem sobrescrever um criado ao mesmo tempo
+				.switchIfEmpty(Mono.defer(() -> this.ticketRepository.countGroupByStatus()
+						.flatMap(amounts -> this.statusCounterRepository.initialize(StatusCounter.TICKET, amounts))
+						.map(counter -> Summary.of(counter.getAmounts()))));
+	}
+}
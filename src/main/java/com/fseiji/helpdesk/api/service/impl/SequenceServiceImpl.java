@@ -0,0 +1,74 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fseiji.helpdesk.api.repository.SequenceRepository;
+import com.fseiji.helpdesk.api.service.SequenceService;
+
+/**
+ * Gerador hi/lo: cada nó reserva no MongoDB um bloco de valores com um único
+ * findAndModify e distribui os valores do bloco com um contador atômico. Nós
+ * diferentes nunca recebem o mesmo bloco, então não há colisões nem uma ida
+ * ao banco por valor gerado
+ */
+@Service
+public class SequenceServiceImpl implements SequenceService {
+
+	@Autowired
+	private SequenceRepository sequenceRepository;
+
+	@Value("${sequence.block-size:100}")
+	private int blockSize;
+
+	private final Map<String, Block> blocks = new ConcurrentHashMap<String, Block>();
+
+	@Override
+	public long next(String sequence) {
+		while (true) {
+			Block block = this.blocks.get(sequence);
+			if (block != null) {
+				long value = block.next.getAndIncrement();
+				if (value <= block.last) {
+					return value;
+				}
+			}
+			reserve(sequence, block);
+		}
+	}
+
+	// descarta o bloco local se ele ainda entregaria valores até o informado
+	@Override
+	public synchronized void raiseTo(String sequence, long value) {
+		this.sequenceRepository.raiseTo(sequence, value);
+		Block block = this.blocks.get(sequence);
+		if (block != null && block.next.get() <= value) {
+			this.blocks.remove(sequence, block);
+		}
+	}
+
+	// somente a thread que encontrar o bloco esgotado reserva o próximo
+	private synchronized void reserve(String sequence, Block exhausted) {
+		if (this.blocks.get(sequence) != exhausted) {
+			return;
+		}
+		long last = this.sequenceRepository.reserve(sequence, this.blockSize);
+		this.blocks.put(sequence, new Block(last - this.blockSize + 1, last));
+	}
+
+	private static class Block {
+
+		private final AtomicLong next;
+		private final long last;
+
+		private Block(long first, long last) {
+			this.next = new AtomicLong(first);
+			this.last = last;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fseiji.helpdesk.api.service.ThumbnailService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Miniaturas das imagens dos tickets, geradas em segundo plano por um pool
+ * limitado com fila limitada. Quem envia a imagem só enfileira o trabalho; com
+ * a fila cheia a miniatura é descartada e gerada de novo quando for pedida. A
+ * miniatura fica no GridFS ao lado da original (metadata.thumbnailOf); se a
+ * mesma imagem for gerada mais de uma vez ao mesmo tempo, fica só a mais nova
+ */
+@Service
+public class ThumbnailServiceImpl implements ThumbnailService, MeterBinder {
+
+	private static final Logger log = LoggerFactory.getLogger(ThumbnailServiceImpl.class);
+
+	private static final String THUMBNAIL_OF = "metadata.thumbnailOf";
+
+	@Autowired
+	private GridFsTemplate gridFsTemplate;
+
+	// maior lado da miniatura, em pixels
+	@Value("${thumbnail.size:200}")
+	private int size;
+
+	// imagens com mais pixels que isso não são decodificadas (cabeçalho com dimensões absurdas)
+	@Value("${thumbnail.max-pixels:40000000}")
+	private long maxPixels;
+
+	@Value("${thumbnail.threads:2}")
+	private int threads;
+
+	@Value("${thumbnail.queue-capacity:100}")
+	private int queueCapacity;
+
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	void init() {
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(this.queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "thumbnail-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	@PreDestroy
+	void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	// enfileira a geração da miniatura; devolve false se a fila estiver cheia
+	@Override
+	public boolean generate(String imageId) {
+		try {
+			this.executor.execute(() -> createThumbnail(imageId));
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public GridFsResource findThumbnail(String imageId) {
+		GridFSFile file = this.gridFsTemplate.findOne(new Query(where(THUMBNAIL_OF).is(imageId)));
+		if (file == null) {
+			return null;
+		}
+		return this.gridFsTemplate.getResource(file);
+	}
+
+	@Override
+	public void deleteThumbnail(String imageId) {
+		this.gridFsTemplate.delete(new Query(where(THUMBNAIL_OF).is(imageId)));
+	}
+
+	private void createThumbnail(String imageId) {
+		try {
+			if (!ObjectId.isValid(imageId)) {
+				return;
+			}
+			GridFSFile original = this.gridFsTemplate.findOne(new Query(where("_id").is(new ObjectId(imageId))));
+			if (original == null || findThumbnail(imageId) != null) {
+				return;
+			}
+			BufferedImage image;
+			try (InputStream content = this.gridFsTemplate.getResource(original).getInputStream()) {
+				image = read(content, imageId);
+			}
+			if (image == null) {
+				return;
+			}
+			// o contentType vai junto no metadata: com metadata informado, o store não grava o contentType
+			Document metadata = new Document("thumbnailOf", imageId).append("_contentType", "image/png");
+			this.gridFsTemplate.store(new ByteArrayInputStream(scale(image)), "thumbnail-" + original.getFilename(),
+					"image/png", metadata);
+			deleteOlderThumbnails(imageId);
+			// a imagem pode ter sido trocada ou removida enquanto a miniatura era gerada
+			if (this.gridFsTemplate.findOne(new Query(where("_id").is(new ObjectId(imageId)))) == null) {
+				deleteThumbnail(imageId);
+			}
+		} catch (IOException | RuntimeException e) {
+			// a miniatura é opcional: uma imagem inválida não pode derrubar a thread do pool
+			log.warn("Failed to generate thumbnail of image {}", imageId, e);
+		}
+	}
+
+	// gerações simultâneas da mesma imagem passam juntas pela verificação acima: cada uma, depois de
+	// gravar, remove as miniaturas da imagem exceto a de maior id. A última a terminar vê todas as
+	// gravadas, então sobra exatamente uma
+	private void deleteOlderThumbnails(String imageId) {
+		Query query = new Query(where(THUMBNAIL_OF).is(imageId)).with(Sort.by(Direction.DESC, "_id"));
+		List<ObjectId> older = new ArrayList<ObjectId>();
+		for (GridFSFile thumbnail : this.gridFsTemplate.find(query).skip(1)) {
+			older.add(thumbnail.getObjectId());
+		}
+		if (!older.isEmpty()) {
+			this.gridFsTemplate.delete(new Query(where("_id").in(older)));
+		}
+	}
+
+	// lê as dimensões pelo cabeçalho antes de decodificar e decodifica só uma amostra dos pixels,
+	// suficiente para a miniatura; devolve null para formatos desconhecidos e imagens grandes demais
+	private BufferedImage read(InputStream content, String imageId) throws IOException {
+		try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+			Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+			if (readers == null || !readers.hasNext()) {
+				// formato que o ImageIO não sabe ler: fica sem miniatura
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				int width = reader.getWidth(0);
+				int height = reader.getHeight(0);
+				if ((long) width * height > this.maxPixels) {
+					log.warn("Image {} has {}x{} pixels, above the thumbnail limit of {}", imageId, width, height,
+							this.maxPixels);
+					return null;
+				}
+				// lê uma a cada "step" linhas e colunas, mantendo ao menos o dobro do tamanho da miniatura
+				int step = Math.max(1, Math.max(width, height) / (this.size * 2));
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(step, step, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	private byte[] scale(BufferedImage image) throws IOException {
+		double ratio = Math.min(1d, (double) this.size / Math.max(image.getWidth(), image.getHeight()));
+		int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+		int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+		BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = thumbnail.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		graphics.drawImage(image, 0, 0, width, height, null);
+		graphics.dispose();
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		ImageIO.write(thumbnail, "png", content);
+		return content.toByteArray();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		new ExecutorServiceMetrics(this.executor, "thumbnails", Tags.empty()).bindTo(registry);
+	}
+}
@@ -0,0 +1,106 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fseiji.helpdesk.api.dto.TicketExport;
+import com.fseiji.helpdesk.api.enums.ExportFormatEnum;
+import com.fseiji.helpdesk.api.service.TicketExportService;
+
+/**
+ * Exportação de tickets em NDJSON ou CSV. Cada ticket é escrito assim que sai
+ * do cursor, então o uso de memória não depende da quantidade de tickets
+ */
+@Service
+public class TicketExportServiceImpl implements TicketExportService {
+
+	// linhas entre cada flush: envia os dados ao cliente e detecta cedo uma desconexão
+	private static final int FLUSH_INTERVAL = 500;
+
+	// primeiros caracteres que fazem o Excel e o LibreOffice interpretarem a célula como fórmula
+	private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+	private static final String CSV_HEADER = "id,number,title,status,priority,date,userId,assignedUserId,description";
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Override
+	public void write(CloseableIterator<TicketExport> tickets, ExportFormatEnum format, OutputStream content)
+			throws IOException {
+		ObjectWriter json = this.objectMapper.writerFor(TicketExport.class);
+		try (CloseableIterator<TicketExport> cursor = tickets) {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(content, StandardCharsets.UTF_8));
+			if (format == ExportFormatEnum.CSV) {
+				writer.write(CSV_HEADER);
+				writer.write("\r\n");
+			}
+			int rows = 0;
+			while (cursor.hasNext()) {
+				TicketExport ticket = cursor.next();
+				if (format == ExportFormatEnum.CSV) {
+					writeCsv(ticket, writer);
+				} else {
+					writer.write(json.writeValueAsString(ticket));
+					writer.write("\n");
+				}
+				if (++rows % FLUSH_INTERVAL == 0) {
+					writer.flush();
+				}
+			}
+			writer.flush();
+		}
+	}
+
+	private void writeCsv(TicketExport ticket, Writer writer) throws IOException {
+		writer.write(ticket.getId());
+		writer.write(',');
+		writer.write(ticket.getNumber() == null ? "" : ticket.getNumber().toString());
+		writer.write(',');
+		writer.write(csv(ticket.getTitle()));
+		writer.write(',');
+		writer.write(ticket.getStatus() == null ? "" : ticket.getStatus().name());
+		writer.write(',');
+		writer.write(ticket.getPriority() == null ? "" : ticket.getPriority().name());
+		writer.write(',');
+		writer.write(date(ticket.getDate()));
+		writer.write(',');
+		writer.write(csv(ticket.getUserId()));
+		writer.write(',');
+		writer.write(csv(ticket.getAssignedUserId()));
+		writer.write(',');
+		writer.write(csv(ticket.getDescription()));
+		writer.write("\r\n");
+	}
+
+	// RFC 4180: campos com vírgula, aspas ou quebra de linha vão entre aspas, com as aspas duplicadas.
+	// Campos que uma planilha leria como fórmula (=, +, -, @, tab ou CR no início) ganham um ' na
+	// frente e também vão entre aspas
+	private String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		boolean formula = !value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0;
+		if (!formula && value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+				&& value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + (formula ? "'" : "") + value.replace("\"", "\"\"") + '"';
+	}
+
+	private String date(Date date) {
+		return date == null ? "" : DateTimeFormatter.ISO_INSTANT.format(date.toInstant());
+	}
+}
@@ -0,0 +1,177 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.service.TicketImageService;
+import com.fseiji.helpdesk.api.service.ThumbnailService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+/**
+ * Imagens dos tickets guardadas no GridFS: o documento do ticket guarda só o
+ * imageId, então leituras e saves do ticket não carregam mais o conteúdo da
+ * imagem
+ */
+@Service
+public class TicketImageServiceImpl implements TicketImageService {
+
+	// formato em que o front-end gravava a imagem dentro do ticket
+	private static final Pattern DATA_URL = Pattern.compile("^data:([^;,]*)(;base64)?,(.*)$", Pattern.DOTALL);
+
+	private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+	// tickets por consulta na migração: as imagens inline podem ter vários MB cada
+	private static final int MIGRATION_BATCH_SIZE = 20;
+
+	@Autowired
+	private GridFsTemplate gridFsTemplate;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private ThumbnailService thumbnailService;
+
+	// depois de uma migração completa não sobra ticket com imagem inline
+	private volatile boolean inlineImagesMigrated;
+
+	@Override
+	public String storeImage(String ticketId, InputStream content, String filename, String contentType) {
+		String imageId = store(content, filename, contentType);
+		Ticket previous = this.ticketRepository.updateImageId(ticketId, imageId);
+		if (previous == null) {
+			// o ticket não existe (ou foi removido durante o upload)
+			deleteImage(imageId);
+			return null;
+		}
+		if (previous.getImageId() != null) {
+			deleteImage(previous.getImageId());
+		}
+		// a miniatura é gerada em segundo plano: o upload não espera a decodificação da imagem
+		this.thumbnailService.generate(imageId);
+		return imageId;
+	}
+
+	@Override
+	public GridFsResource findImage(String imageId) {
+		if (!ObjectId.isValid(imageId)) {
+			return null;
+		}
+		GridFSFile file = this.gridFsTemplate.findOne(new Query(where("_id").is(new ObjectId(imageId))));
+		if (file == null) {
+			return null;
+		}
+		return this.gridFsTemplate.getResource(file);
+	}
+
+	@Override
+	public void deleteImage(String imageId) {
+		if (ObjectId.isValid(imageId)) {
+			this.gridFsTemplate.delete(new Query(where("_id").is(new ObjectId(imageId))));
+			this.thumbnailService.deleteThumbnail(imageId);
+		}
+	}
+
+	// move para o GridFS as imagens que ainda estão gravadas dentro dos tickets (campo image), em lotes:
+	// cada lote sai de uma nova consulta, já que os tickets migrados perdem o campo image
+	@Override
+	public int migrateInlineImages() {
+		String collection = this.mongoTemplate.getCollectionName(Ticket.class);
+		int migrated = 0;
+		List<Document> tickets;
+		do {
+			Query query = new Query(where("image").exists(true)).limit(MIGRATION_BATCH_SIZE);
+			query.fields().include("image");
+			tickets = this.mongoTemplate.find(query, Document.class, collection);
+			for (Document ticket : tickets) {
+				if (migrate(ticket, collection)) {
+					migrated++;
+				}
+			}
+		} while (!tickets.isEmpty());
+		this.inlineImagesMigrated = true;
+		return migrated;
+	}
+
+	@Override
+	public void migrateInlineImage(String ticketId) {
+		if (this.inlineImagesMigrated || !ObjectId.isValid(ticketId)) {
+			return;
+		}
+		String collection = this.mongoTemplate.getCollectionName(Ticket.class);
+		Query query = new Query(where("_id").is(new ObjectId(ticketId)).and("image").exists(true));
+		query.fields().include("image");
+		Document ticket = this.mongoTemplate.findOne(query, Document.class, collection);
+		if (ticket != null) {
+			migrate(ticket, collection);
+		}
+	}
+
+	private boolean migrate(Document ticket, String collection) {
+		Update update = new Update().unset("image");
+		Object image = ticket.get("image");
+		String imageId = null;
+		if (image instanceof String && !((String) image).isEmpty()) {
+			imageId = storeInline(ticket.get("_id").toString(), (String) image);
+			update.set("imageId", imageId);
+		}
+		// o mesmo ticket pode ter sido migrado ao mesmo tempo pelo PUT ou por outro nó
+		Query query = new Query(where("_id").is(ticket.get("_id")).and("image").exists(true));
+		if (this.mongoTemplate.updateFirst(query, update, collection).getModifiedCount() == 0) {
+			if (imageId != null) {
+				deleteImage(imageId);
+			}
+			return false;
+		}
+		if (imageId != null) {
+			this.thumbnailService.generate(imageId);
+		}
+		return true;
+	}
+
+	private String storeInline(String ticketId, String image) {
+		Matcher dataUrl = DATA_URL.matcher(image);
+		if (!dataUrl.matches()) {
+			return store(new ByteArrayInputStream(decode(image)), ticketId, DEFAULT_CONTENT_TYPE);
+		}
+		String contentType = dataUrl.group(1).isEmpty() ? DEFAULT_CONTENT_TYPE : dataUrl.group(1);
+		byte[] content = dataUrl.group(2) != null ? decode(dataUrl.group(3))
+				: dataUrl.group(3).getBytes(StandardCharsets.UTF_8);
+		return store(new ByteArrayInputStream(content), ticketId, contentType);
+	}
+
+	// conteúdo em base64; se não for, guarda o texto como estava
+	private byte[] decode(String image) {
+		try {
+			return Base64.getMimeDecoder().decode(image);
+		} catch (IllegalArgumentException e) {
+			return image.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	private String store(InputStream content, String filename, String contentType) {
+		return this.gridFsTemplate.store(content, filename, contentType).toHexString();
+	}
+}
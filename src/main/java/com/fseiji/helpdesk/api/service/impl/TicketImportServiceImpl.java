@@ -0,0 +1,268 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fseiji.helpdesk.api.dto.TicketImportError;
+import com.fseiji.helpdesk.api.dto.TicketImportSummary;
+import com.fseiji.helpdesk.api.entity.Sequence;
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.StatusCounterRepository;
+import com.fseiji.helpdesk.api.service.SequenceService;
+import com.fseiji.helpdesk.api.service.TicketImportService;
+import com.fseiji.helpdesk.api.util.TicketValidation;
+import com.fseiji.helpdesk.api.util.Trigrams;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+
+/**
+ * Importação de tickets vindos de outros sistemas. O arquivo é lido linha a
+ * linha e só um lote fica em memória por vez, qualquer que seja o tamanho do
+ * arquivo; linhas acima de ticket.import.max-line-length são descartadas sem
+ * serem guardadas e aparecem como erro
+ */
+@Service
+public class TicketImportServiceImpl implements TicketImportService {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private StatusCounterRepository statusCounterRepository;
+
+	@Autowired
+	private SequenceService sequenceService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${ticket.import.batch-size:500}")
+	private int batchSize;
+
+	@Value("${ticket.import.max-errors:100}")
+	private int maxErrors;
+
+	@Value("${ticket.import.max-line-length:1048576}")
+	private int maxLineLength;
+
+	@Override
+	public TicketImportSummary importTickets(InputStream content, User user) throws IOException {
+		long start = System.nanoTime();
+		ObjectReader reader = this.objectMapper.readerFor(Ticket.class);
+		TicketImportSummary summary = new TicketImportSummary();
+		List<Ticket> batch = new ArrayList<Ticket>(this.batchSize);
+		List<Long> batchLines = new ArrayList<Long>(this.batchSize);
+		try (LineReader lines = new LineReader(new InputStreamReader(content, StandardCharsets.UTF_8),
+				this.maxLineLength)) {
+			String line;
+			long lineNumber = 0;
+			while ((line = lines.readLine()) != null) {
+				lineNumber++;
+				if (lines.isTooLong()) {
+					summary.setLines(summary.getLines() + 1);
+					addError(summary, lineNumber, "Line too long, maximum is " + this.maxLineLength + " characters");
+					continue;
+				}
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				summary.setLines(summary.getLines() + 1);
+				Ticket ticket;
+				try {
+					ticket = reader.readValue(line);
+				} catch (JsonProcessingException e) {
+					addError(summary, lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+					continue;
+				}
+				String error = validate(ticket);
+				if (error != null) {
+					addError(summary, lineNumber, error);
+					continue;
+				}
+				batch.add(prepare(ticket, user));
+				batchLines.add(lineNumber);
+				if (batch.size() >= this.batchSize) {
+					insert(batch, batchLines, summary);
+				}
+			}
+		}
+		insert(batch, batchLines, summary);
+
+		long elapsed = System.nanoTime() - start;
+		summary.setElapsedMillis(elapsed / 1_000_000);
+		summary.setTicketsPerSecond(elapsed == 0 ? 0 : summary.getImported() * 1_000_000_000d / elapsed);
+		return summary;
+	}
+
+	// mesma regra da criação em POST /api/ticket (TicketValidation)
+	private String validate(Ticket ticket) {
+		return ticket == null ? TicketValidation.TITLE_REQUIRED : TicketValidation.validateCreate(ticket);
+	}
+
+	// o ticket importado recebe número e usuário deste sistema; status e data de origem são mantidos
+	private Ticket prepare(Ticket ticket, User user) {
+		ticket.setId(null);
+		// o bulkOps não inicializa o @Version como o insert do MongoTemplate
+		ticket.setVersion(0L);
+		ticket.setUser(user);
+		ticket.setAssignedUser(null);
+		ticket.setImageId(null);
+		ticket.setChanges(null);
+		ticket.setNumber((int) this.sequenceService.next(Sequence.TICKET_NUMBER));
+		ticket.setTitleGrams(Trigrams.of(ticket.getTitle()));
+		if (ticket.getStatus() == null) {
+			ticket.setStatus(StatusEnum.NEW);
+		}
+		if (ticket.getDate() == null) {
+			ticket.setDate(new Date());
+		}
+		return ticket;
+	}
+
+	// grava o lote em um único insertMany não ordenado: uma falha não impede os demais documentos
+	// do lote, e só os realmente gravados entram no total importado e nos contadores por status
+	private void insert(List<Ticket> batch, List<Long> batchLines, TicketImportSummary summary) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		Map<Integer, String> failures = new HashMap<Integer, String>();
+		try {
+			this.mongoTemplate.bulkOps(BulkMode.UNORDERED, Ticket.class).insert(batch).execute();
+		} catch (BulkOperationException e) {
+			for (BulkWriteError error : e.getErrors()) {
+				failures.put(error.getIndex(), error.getMessage());
+			}
+		} catch (DataAccessException e) {
+			// chave duplicada chega traduzida (DuplicateKeyException), com os erros por documento na causa
+			if (e.getCause() instanceof MongoBulkWriteException) {
+				for (BulkWriteError error : ((MongoBulkWriteException) e.getCause()).getWriteErrors()) {
+					failures.put(error.getIndex(), error.getMessage());
+				}
+			} else {
+				// falha do lote inteiro (conexão, permissão...): nenhum documento foi confirmado
+				for (int index = 0; index < batch.size(); index++) {
+					failures.put(index, e.getMessage());
+				}
+			}
+		}
+		Map<StatusEnum, Long> amounts = new EnumMap<StatusEnum, Long>(StatusEnum.class);
+		for (int index = 0; index < batch.size(); index++) {
+			String failure = failures.get(index);
+			if (failure == null) {
+				amounts.merge(batch.get(index).getStatus(), 1L, Long::sum);
+			} else {
+				addError(summary, batchLines.get(index), failure);
+			}
+		}
+		if (!amounts.isEmpty()) {
+			this.statusCounterRepository.incrementAll(StatusCounter.TICKET, amounts);
+		}
+		summary.setImported(summary.getImported() + batch.size() - failures.size());
+		batch.clear();
+		batchLines.clear();
+	}
+
+	private void addError(TicketImportSummary summary, long line, String error) {
+		summary.setFailed(summary.getFailed() + 1);
+		if (summary.getErrors().size() < this.maxErrors) {
+			summary.getErrors().add(new TicketImportError(line, error));
+		} else {
+			summary.setErrorsTruncated(true);
+		}
+	}
+
+	/**
+	 * Leitor de linhas que guarda no máximo maxLength caracteres por linha; o
+	 * restante de uma linha longa é lido e descartado
+	 */
+	static final class LineReader implements AutoCloseable {
+
+		private final Reader reader;
+		private final int maxLength;
+		private final char[] buffer = new char[8192];
+		private final StringBuilder line = new StringBuilder();
+		private int position;
+		private int limit;
+		private boolean tooLong;
+
+		LineReader(Reader reader, int maxLength) {
+			this.reader = reader;
+			this.maxLength = maxLength;
+		}
+
+		// a próxima linha sem o terminador (\n ou \r\n), ou null no fim; para uma linha longa devolve
+		// só o início e isTooLong() fica verdadeiro
+		String readLine() throws IOException {
+			this.line.setLength(0);
+			this.tooLong = false;
+			boolean read = false;
+			while (true) {
+				if (this.position == this.limit) {
+					this.limit = this.reader.read(this.buffer);
+					this.position = 0;
+					if (this.limit <= 0) {
+						this.limit = 0;
+						break;
+					}
+				}
+				read = true;
+				int start = this.position;
+				while (this.position < this.limit && this.buffer[this.position] != '\n') {
+					this.position++;
+				}
+				// um caractere além do máximo, para o \r de um \r\n
+				int length = Math.min(this.position - start, this.maxLength + 1 - this.line.length());
+				if (length < this.position - start) {
+					this.tooLong = true;
+				}
+				this.line.append(this.buffer, start, Math.max(length, 0));
+				if (this.position < this.limit) {
+					this.position++;
+					break;
+				}
+			}
+			if (!read) {
+				return null;
+			}
+			if (this.line.length() > 0 && this.line.charAt(this.line.length() - 1) == '\r') {
+				this.line.setLength(this.line.length() - 1);
+			}
+			if (this.line.length() > this.maxLength) {
+				this.tooLong = true;
+			}
+			return this.line.toString();
+		}
+
+		boolean isTooLong() {
+			return this.tooLong;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.reader.close();
+		}
+	}
+}
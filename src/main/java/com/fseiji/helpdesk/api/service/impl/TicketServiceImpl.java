@@ -1,18 +1,55 @@
 package com.fseiji.helpdesk.api.service.impl;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
 
+import com.fseiji.helpdesk.api.dto.CursorPage;
+import com.fseiji.helpdesk.api.dto.Summary;
+import com.fseiji.helpdesk.api.dto.TicketCursor;
+import com.fseiji.helpdesk.api.dto.TicketExport;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchCursor;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSearchResult;
+import com.fseiji.helpdesk.api.dto.TicketStatusResult;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
 import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.entity.StatusCounter;
 import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.ChangeResultEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
 import com.fseiji.helpdesk.api.repository.ChangeStatusRepository;
+import com.fseiji.helpdesk.api.repository.StatusCounterRepository;
 import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.service.ChangeStatusAuditService;
+import com.fseiji.helpdesk.api.service.TicketImageService;
 import com.fseiji.helpdesk.api.service.TicketService;
+import com.fseiji.helpdesk.api.util.Trigrams;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 @Service
 public class TicketServiceImpl implements TicketService {
@@ -23,9 +60,36 @@ public class TicketServiceImpl implements TicketService {
 	@Autowired
 	private ChangeStatusRepository changeStatusRepository;
 
+	@Autowired
+	private StatusCounterRepository statusCounterRepository;
+
+	@Autowired
+	private TicketImageService ticketImageService;
+
+	@Autowired
+	private ChangeStatusAuditService changeStatusAuditService;
+
+	@Value("${ticket.total-cache.expiration:30}")
+	private long totalCacheExpiration;
+
+	// totais por combinação de filtros, para as listagens com TotalEnum.APPROXIMATE
+	private Cache<String, Long> totals;
+
+	@PostConstruct
+	void init() {
+		this.totals = Caffeine.newBuilder().maximumSize(1000)
+				.expireAfterWrite(this.totalCacheExpiration, TimeUnit.SECONDS).build();
+	}
+
 	@Override
 	public Ticket createOrUpdate(Ticket ticket) {
-		return this.ticketRepository.save(ticket);
+		boolean created = ticket.getId() == null;
+		ticket.setTitleGrams(Trigrams.of(ticket.getTitle()));
+		Ticket ticketPersisted = this.ticketRepository.save(ticket);
+		if (created && ticketPersisted.getStatus() != null) {
+			this.statusCounterRepository.increment(StatusCounter.TICKET, ticketPersisted.getStatus(), 1);
+		}
+		return ticketPersisted;
 	}
 
 	@Override
@@ -33,20 +97,80 @@ public class TicketServiceImpl implements TicketService {
 		return this.ticketRepository.findById(id);
 	}
 
+	@Override
+	public Ticket findDetail(String id) {
+		return this.ticketRepository.findDetailById(id);
+	}
+
 	@Override
 	public void delete(String id) {
-		this.ticketRepository.deleteById(id);
+		Ticket ticketRemoved = this.ticketRepository.findAndRemove(id);
+		if (ticketRemoved == null) {
+			return;
+		}
+		if (ticketRemoved.getStatus() != null) {
+			this.statusCounterRepository.increment(StatusCounter.TICKET, ticketRemoved.getStatus(), -1);
+		}
+		if (ticketRemoved.getImageId() != null) {
+			this.ticketImageService.deleteImage(ticketRemoved.getImageId());
+		}
 	}
 
 	@Override
-	public Page<Ticket> listTicket(int page, int count) {
+	public Page<TicketSummaryView> listTicket(int page, int count) {
 		Pageable pages = PageRequest.of(page, count);
-		return this.ticketRepository.findAll(pages);
+		return this.ticketRepository.findAllByOrderByDateDesc(pages);
+	}
+
+	@Override
+	public CursorPage<TicketSummaryView> listTicketAfter(String cursor, int count, TicketFilter filter) {
+		TicketCursor after = cursor == null || cursor.isEmpty() ? null : TicketCursor.decode(cursor);
+		// um ticket a mais indica se existe uma próxima página
+		List<TicketSummaryView> tickets = this.ticketRepository.findByFilterAfter(filter, after, count + 1);
+		String nextCursor = null;
+		if (tickets.size() > count) {
+			tickets = tickets.subList(0, count);
+			nextCursor = TicketCursor.of(tickets.get(count - 1)).encode();
+		}
+		return new CursorPage<TicketSummaryView>(tickets, nextCursor);
+	}
+
+	@Override
+	public TicketSearchPage search(String text, String cursor, int count, TicketFilter filter, boolean facets) {
+		TicketSearchCursor after = cursor == null || cursor.isEmpty() ? null : TicketSearchCursor.decode(cursor);
+		// um ticket a mais indica se existe uma próxima página
+		TicketSearchPage page = this.ticketRepository.searchText(text, filter, after, count + 1, facets);
+		List<TicketSearchResult> tickets = page.getContent();
+		String nextCursor = null;
+		if (tickets.size() > count) {
+			tickets = tickets.subList(0, count);
+			nextCursor = TicketSearchCursor.of(tickets.get(count - 1)).encode();
+		}
+		return new TicketSearchPage(tickets, nextCursor, page.getFacets());
+	}
+
+	@Override
+	public Slice<TicketSummaryView> findSlice(int page, int count, TicketFilter filter) {
+		Pageable pages = PageRequest.of(page, count);
+		return this.ticketRepository.findSliceByFilter(filter, pages);
+	}
+
+	@Override
+	public Page<TicketSummaryView> findWithApproximateTotal(int page, int count, TicketFilter filter) {
+		Slice<TicketSummaryView> tickets = findSlice(page, count, filter);
+		long total;
+		if (filter.isEmpty()) {
+			total = this.ticketRepository.estimatedCount();
+		} else {
+			total = this.totals.get(filter.key(), key -> this.ticketRepository.countByFilter(filter));
+		}
+		return new PageImpl<TicketSummaryView>(tickets.getContent(), tickets.getPageable(), total);
 	}
 
 	@Override
 	public ChangeStatus createChangeStatus(ChangeStatus changeStatus) {
-		return this.changeStatusRepository.save(changeStatus);
+		this.changeStatusAuditService.record(changeStatus);
+		return changeStatus;
 	}
 
 	@Override
@@ -55,28 +179,28 @@ public class TicketServiceImpl implements TicketService {
 	}
 
 	@Override
-	public Page<Ticket> findByCurrentUser(int page, int count, String userId) {
-		Pageable pages = PageRequest.of(page, count);
-		return this.ticketRepository.findByUserIdOrderByDateDesc(pages, userId);
+	public Page<TicketSummaryView> findByCurrentUser(int page, int count, String userId) {
+		TicketFilter filter = new TicketFilter();
+		filter.setUserId(userId);
+		return this.ticketRepository.findPageByFilter(filter, PageRequest.of(page, count));
 	}
 
 	@Override
-	public Page<Ticket> findByParameters(int page, int count, String title, String status, String priority) {
-		Pageable pages = PageRequest.of(page, count);
-		return this.ticketRepository.findByTitleIgnoreCaseContainingAndStatusContainingAndPriorityContainingOrderByDateDesc(title, status,
-				priority, pages);
+	public Page<TicketSummaryView> findByParameters(int page, int count, String title, String status, String priority) {
+		TicketFilter filter = new TicketFilter(title, status, priority);
+		return this.ticketRepository.findPageByFilter(filter, PageRequest.of(page, count));
 	}
 
 	@Override
-	public Page<Ticket> findByParametersAndCurrentUser(int page, int count, String title, String status,
+	public Page<TicketSummaryView> findByParametersAndCurrentUser(int page, int count, String title, String status,
 			String priority, String userId) {
-		Pageable pages = PageRequest.of(page, count);
-		return this.ticketRepository.findByTitleIgnoreCaseContainingAndStatusContainingAndPriorityContainingAndUserIdOrderByDateDesc(title,
-				status, priority, userId, pages);
+		TicketFilter filter = new TicketFilter(title, status, priority);
+		filter.setUserId(userId);
+		return this.ticketRepository.findPageByFilter(filter, PageRequest.of(page, count));
 	}
 
 	@Override
-	public Page<Ticket> findByNumber(int page, int count, Integer number) {
+	public Page<TicketSummaryView> findByNumber(int page, int count, Integer number) {
 		Pageable pages = PageRequest.of(page, count);
 		return this.ticketRepository.findByNumber(number, pages);
 	}
@@ -87,12 +211,130 @@ public class TicketServiceImpl implements TicketService {
 	}
 
 	@Override
-	public Page<Ticket> findByParametersAndAssignedUser(int page, int count, String title, String status,
+	public CloseableIterator<TicketExport> streamByFilter(TicketFilter filter) {
+		return this.ticketRepository.streamByFilter(filter);
+	}
+
+	@Override
+	public Page<TicketSummaryView> findByParametersAndAssignedUser(int page, int count, String title, String status,
 			String priority, String assignedUser) {
-		Pageable pages = PageRequest.of(page, count);
-		return this.ticketRepository
-				.findByTitleIgnoreCaseContainingAndStatusContainingAndPriorityContainingAndAssignedUserIdOrderByDateDesc(title, status,
-						priority, assignedUser, pages);
+		TicketFilter filter = new TicketFilter(title, status, priority);
+		filter.setAssignedUserId(assignedUser);
+		return this.ticketRepository.findPageByFilter(filter, PageRequest.of(page, count));
+	}
+
+	@Override
+	public Ticket changeStatus(String id, StatusEnum expected, StatusEnum status, User assignedUser) {
+		if (expected == null) {
+			// sem o status visto pelo cliente, compara com o status atual do banco
+			Optional<Ticket> ticketCurrent = this.ticketRepository.findById(id);
+			if (!ticketCurrent.isPresent()) {
+				return null;
+			}
+			expected = ticketCurrent.get().getStatus();
+		}
+		Ticket ticketPersisted = this.ticketRepository.changeStatus(id, expected, status, assignedUser);
+		if (ticketPersisted == null) {
+			if (!this.ticketRepository.existsById(id)) {
+				return null;
+			}
+			throw new OptimisticLockingFailureException("Ticket status is no longer " + expected);
+		}
+		this.statusCounterRepository.move(StatusCounter.TICKET, expected, status);
+		return ticketPersisted;
+	}
+
+	@Override
+	public List<TicketStatusResult> changeStatus(List<String> ids, StatusEnum status, User user) {
+		Set<String> distinctIds = new LinkedHashSet<String>(ids);
+		Map<String, Ticket> current = new HashMap<String, Ticket>();
+		for (Ticket ticket : this.ticketRepository.findStatusByIds(distinctIds)) {
+			current.put(ticket.getId(), ticket);
+		}
+		List<Ticket> expected = new ArrayList<Ticket>();
+		for (Ticket ticket : current.values()) {
+			if (ticket.getStatus() != status) {
+				expected.add(ticket);
+			}
+		}
+		int modified = this.ticketRepository.changeStatus(expected, status,
+				status == StatusEnum.ASSIGNED ? user : null);
+		// se nem todos foram alterados, relê os tickets para saber quais mudaram entre a leitura e a escrita
+		Map<String, Ticket> after = new HashMap<String, Ticket>();
+		if (modified < expected.size()) {
+			List<String> expectedIds = expected.stream().map(Ticket::getId).collect(Collectors.toList());
+			for (Ticket ticket : this.ticketRepository.findStatusByIds(expectedIds)) {
+				after.put(ticket.getId(), ticket);
+			}
+		}
+
+		List<TicketStatusResult> results = new ArrayList<TicketStatusResult>();
+		List<ChangeStatus> changes = new ArrayList<ChangeStatus>();
+		Map<StatusEnum, Long> amounts = new EnumMap<StatusEnum, Long>(StatusEnum.class);
+		Date date = new Date();
+		for (String id : distinctIds) {
+			Ticket ticket = current.get(id);
+			ChangeResultEnum result = changeResult(ticket, after.get(id), status, modified < expected.size());
+			results.add(new TicketStatusResult(id, result, ticket == null ? null : ticket.getStatus()));
+			if (result == ChangeResultEnum.CHANGED) {
+				amounts.merge(ticket.getStatus(), -1L, Long::sum);
+				amounts.merge(status, 1L, Long::sum);
+				ChangeStatus changeStatus = new ChangeStatus();
+				changeStatus.setTicket(ticket);
+				changeStatus.setUserChange(user);
+				changeStatus.setDateChangeStatus(date);
+				changeStatus.setStatus(status);
+				changes.add(changeStatus);
+			}
+		}
+		this.statusCounterRepository.incrementAll(StatusCounter.TICKET, amounts);
+		if (!changes.isEmpty()) {
+			this.changeStatusRepository.saveAll(changes);
+		}
+		return results;
+	}
+
+	private ChangeResultEnum changeResult(Ticket before, Ticket after, StatusEnum status, boolean partial) {
+		if (before == null) {
+			return ChangeResultEnum.NOT_FOUND;
+		}
+		if (before.getStatus() == status) {
+			return ChangeResultEnum.UNCHANGED;
+		}
+		if (!partial) {
+			return ChangeResultEnum.CHANGED;
+		}
+		// alterado por esta operação: status pedido e exatamente uma versão acima da lida
+		long version = before.getVersion() == null ? 0 : before.getVersion();
+		if (after != null && after.getStatus() == status && after.getVersion() != null
+				&& after.getVersion() == version + 1) {
+			return ChangeResultEnum.CHANGED;
+		}
+		return after == null ? ChangeResultEnum.NOT_FOUND : ChangeResultEnum.CONFLICT;
+	}
+
+	@Override
+	public Summary findSummary() {
+		Optional<StatusCounter> counter = this.statusCounterRepository.findById(StatusCounter.TICKET);
+		if (!counter.isPresent()) {
+			return initSummary();
+		}
+		return Summary.of(counter.get().getAmounts());
+	}
+
+	@Override
+	public Summary initSummary() {
+		Map<StatusEnum, Long> amounts = this.ticketRepository.countGroupByStatus();
+		return Summary.of(this.statusCounterRepository.initialize(StatusCounter.TICKET, amounts).getAmounts());
+	}
+
+	// recalcula os contadores a partir da coleção de tickets, corrigindo qualquer divergência. Só pelo
+	// endpoint de ADMIN, sem escritas concorrentes: o save sobrescreve o documento inteiro
+	@Override
+	public Summary reconcileSummary() {
+		Map<StatusEnum, Long> amounts = this.ticketRepository.countGroupByStatus();
+		this.statusCounterRepository.save(new StatusCounter(StatusCounter.TICKET, amounts));
+		return Summary.of(amounts);
 	}
 
 }
@@ -0,0 +1,23 @@
+package com.fseiji.helpdesk.api.util;
+
+import com.fseiji.helpdesk.api.entity.Ticket;
+
+/**
+ * Regras de um ticket novo, comuns à criação em POST /api/ticket e à
+ * importação em POST /api/ticket/import
+ */
+public final class TicketValidation {
+
+	public static final String TITLE_REQUIRED = "Title no information";
+
+	private TicketValidation() {
+	}
+
+	// mensagem do primeiro erro encontrado, ou null se o ticket puder ser criado
+	public static String validateCreate(Ticket ticket) {
+		if (ticket.getTitle() == null || ticket.getTitle().trim().isEmpty()) {
+			return TITLE_REQUIRED;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,31 @@
+package com.fseiji.helpdesk.api.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Trigramas (sequências de 3 caracteres) de um texto, em minúsculas. Todo
+ * trecho com 3 ou mais caracteres contido em um título tem os seus trigramas
+ * entre os do título, o que permite buscar por trecho com um índice
+ */
+public final class Trigrams {
+
+	public static final int SIZE = 3;
+
+	private Trigrams() {
+	}
+
+	public static List<String> of(String text) {
+		Set<String> grams = new LinkedHashSet<String>();
+		if (text != null) {
+			String normalized = text.toLowerCase(Locale.ROOT);
+			for (int i = 0; i + SIZE <= normalized.length(); i++) {
+				grams.add(normalized.substring(i, i + SIZE));
+			}
+		}
+		return new ArrayList<String>(grams);
+	}
+}
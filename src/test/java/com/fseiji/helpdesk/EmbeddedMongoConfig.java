@@ -0,0 +1,62 @@
+package com.fseiji.helpdesk;
+
+import java.net.InetSocketAddress;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+/**
+ * Sobe um MongoDB em memória para os testes, no lugar do servidor em
+ * localhost:27017 configurado no application.properties. Com
+ * -Dtest.mongodb.uri=mongodb://... os testes usam esse servidor (necessário
+ * para o QueryPlanTests, já que o servidor em memória não tem explain)
+ */
+@Configuration
+public class EmbeddedMongoConfig {
+
+	@Bean(destroyMethod = "shutdown")
+	public MongoServer mongoServer() {
+		MongoServer server = new MongoServer(new MemoryBackend());
+		server.bind();
+		return server;
+	}
+
+	@Bean
+	public MongoCommandCounter mongoCommandCounter() {
+		return new MongoCommandCounter();
+	}
+
+	@Bean
+	public MongoClientSettings mongoClientSettings(MongoServer mongoServer, MongoCommandCounter mongoCommandCounter,
+			@Value("${test.mongodb.uri:}") String uri) {
+		InetSocketAddress address = mongoServer.getLocalAddress();
+		ConnectionString connectionString = new ConnectionString(!uri.isEmpty() ? uri
+				: "mongodb://" + address.getHostString() + ":" + address.getPort());
+		return MongoClientSettings.builder().applyConnectionString(connectionString)
+				.addCommandListener(mongoCommandCounter).build();
+	}
+
+	@Bean(destroyMethod = "close")
+	public MongoClient mongoClient(MongoClientSettings mongoClientSettings) {
+		return MongoClients.create(mongoClientSettings);
+	}
+
+	// cliente do modo reativo, no mesmo servidor
+	@Bean(destroyMethod = "close")
+	@ConditionalOnWebApplication(type = Type.REACTIVE)
+	public com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient(MongoClientSettings mongoClientSettings) {
+		return com.mongodb.reactivestreams.client.MongoClients.create(mongoClientSettings);
+	}
+
+}
@@ -1,13 +1,80 @@
 package com.fseiji.helpdesk;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.api.config.IndexBootstrap;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
 
 @SpringBootTest
 class HelpDeskApplicationTests {
 
+	@Autowired
+	private CommandLineRunner init;
+
+	@Autowired
+	private IndexBootstrap indexBootstrap;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void initRenumbersRepeatedTicketNumbers() throws Exception {
+		this.indexBootstrap.ready().get(30, TimeUnit.SECONDS);
+		// dados de antes do índice único: números aleatórios repetidos e tickets sem número
+		this.mongoTemplate.dropCollection(Ticket.class);
+		try {
+			String collection = this.mongoTemplate.getCollectionName(Ticket.class);
+			Document oldest = new Document("title", "first 7").append("number", 7);
+			this.mongoTemplate.insert(oldest, collection);
+			this.mongoTemplate.insert(new Document("title", "second 7").append("number", 7), collection);
+			this.mongoTemplate.insert(new Document("title", "third 7").append("number", 7), collection);
+			this.mongoTemplate.insert(new Document("title", "only 9").append("number", 9), collection);
+			this.mongoTemplate.insert(new Document("title", "no number"), collection);
+
+			this.init.run();
+
+			List<Ticket> tickets = this.ticketRepository.findAll();
+			Set<Integer> numbers = new HashSet<Integer>();
+			for (Ticket ticket : tickets) {
+				assertNotNull(ticket.getNumber());
+				numbers.add(ticket.getNumber());
+			}
+			assertEquals(5, numbers.size());
+			assertEquals(7, this.mongoTemplate.findOne(new Query(where("title").is("first 7")), Ticket.class)
+					.getNumber().intValue());
+			assertEquals(9, this.mongoTemplate.findOne(new Query(where("title").is("only 9")), Ticket.class)
+					.getNumber().intValue());
+		} finally {
+			this.ticketRepository.deleteAll();
+			IndexBootstrap indexBootstrap = new IndexBootstrap();
+			ReflectionTestUtils.setField(indexBootstrap, "mongoTemplate", this.mongoTemplate);
+			ReflectionTestUtils.invokeMethod(indexBootstrap, "ensureIndexes");
+			indexBootstrap.ready().get();
+		}
+	}
+
 }
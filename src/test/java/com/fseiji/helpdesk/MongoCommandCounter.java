@@ -0,0 +1,65 @@
+package com.fseiji.helpdesk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.BsonDocument;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Conta os comandos enviados ao MongoDB, por nome do comando (find,
+ * aggregate, insert...)
+ */
+public class MongoCommandCounter implements CommandListener {
+
+	private final Map<String, AtomicInteger> commands = new ConcurrentHashMap<String, AtomicInteger>();
+
+	private final Map<String, BsonDocument> lastCommands = new ConcurrentHashMap<String, BsonDocument>();
+
+	private final List<BsonDocument> history = new CopyOnWriteArrayList<BsonDocument>();
+
+	@Override
+	public void commandStarted(CommandStartedEvent event) {
+		this.commands.computeIfAbsent(event.getCommandName(), name -> new AtomicInteger()).incrementAndGet();
+		BsonDocument command = event.getCommand().clone();
+		this.lastCommands.put(event.getCommandName(), command);
+		this.history.add(command);
+	}
+
+	@Override
+	public void commandSucceeded(CommandSucceededEvent event) {
+	}
+
+	@Override
+	public void commandFailed(CommandFailedEvent event) {
+	}
+
+	public int count(String commandName) {
+		AtomicInteger count = this.commands.get(commandName);
+		return count == null ? 0 : count.get();
+	}
+
+	// último comando enviado com este nome, para conferir o formato da consulta
+	public BsonDocument lastCommand(String commandName) {
+		return this.lastCommands.get(commandName);
+	}
+
+	// todos os comandos enviados desde o último reset, na ordem
+	public List<BsonDocument> history() {
+		return new ArrayList<BsonDocument>(this.history);
+	}
+
+	public void reset() {
+		this.commands.clear();
+		this.lastCommands.clear();
+		this.history.clear();
+	}
+}
@@ -0,0 +1,127 @@
+package com.fseiji.helpdesk.api.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.entity.IdempotencyKey;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+
+@SpringBootTest
+class IndexBootstrapTests {
+
+	@Autowired
+	private IndexBootstrap indexBootstrap;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Test
+	void createsDeclaredIndexesInBackground() throws Exception {
+		List<String> names = this.indexBootstrap.ready().get(30, TimeUnit.SECONDS);
+
+		assertTrue(names.containsAll(Arrays.asList("date_id", "user_date", "assignedUser_status_date",
+				"status_priority_date", "ticket_dateChangeStatus")));
+		assertTrue(indexNames(Ticket.class).containsAll(
+				Arrays.asList("date_id", "user_date", "assignedUser_status_date", "status_priority_date", "number")));
+		assertTrue(indexNames(ChangeStatus.class).contains("ticket_dateChangeStatus"));
+	}
+
+	@Test
+	void createsTtlIndexForIdempotencyKeys() throws Exception {
+		this.indexBootstrap.ready().get(30, TimeUnit.SECONDS);
+
+		IndexInfo ttl = this.mongoTemplate.indexOps(IdempotencyKey.class).getIndexInfo().stream()
+				.filter(index -> index.getName().equals("expiresAt_ttl")).findFirst().get();
+		assertEquals(Duration.ZERO, ttl.getExpireAfter().get());
+	}
+
+	@Test
+	void healthIsUpWhenIndexesAreReady() throws Exception {
+		this.indexBootstrap.ready().get(30, TimeUnit.SECONDS);
+
+		assertEquals(Status.UP, this.indexBootstrap.health().getStatus());
+	}
+
+	@Test
+	void healthIsDownWhenUniqueIndexCannotBeBuilt() throws Exception {
+		this.indexBootstrap.ready().get(30, TimeUnit.SECONDS);
+		this.mongoTemplate.dropCollection(Ticket.class);
+		String collection = this.mongoTemplate.getCollectionName(Ticket.class);
+		try {
+			this.mongoTemplate.insert(new Document("title", "a").append("number", 7), collection);
+			this.mongoTemplate.insert(new Document("title", "b").append("number", 7), collection);
+			IndexBootstrap indexBootstrap = new IndexBootstrap();
+			ReflectionTestUtils.setField(indexBootstrap, "mongoTemplate", this.mongoTemplate);
+			assertEquals(Status.UNKNOWN, indexBootstrap.health().getStatus());
+
+			indexBootstrap.ensureIndexes();
+
+			assertTrue(indexBootstrap.ready().isCompletedExceptionally());
+			Health health = indexBootstrap.health();
+			assertEquals(Status.DOWN, health.getStatus());
+			assertTrue(((Map<?, ?>) health.getDetails().get("failures")).containsKey("Ticket.number"));
+		} finally {
+			this.mongoTemplate.remove(new Query(), collection);
+			IndexBootstrap indexBootstrap = new IndexBootstrap();
+			ReflectionTestUtils.setField(indexBootstrap, "mongoTemplate", this.mongoTemplate);
+			indexBootstrap.ensureIndexes();
+			indexBootstrap.ready().get();
+		}
+	}
+
+	@Test
+	void failureOnOneEntityStillCreatesLaterIndexes() throws Exception {
+		this.indexBootstrap.ready().get(30, TimeUnit.SECONDS);
+		this.mongoTemplate.dropCollection(ChangeStatus.class);
+		this.mongoTemplate.dropCollection(IdempotencyKey.class);
+		MongoTemplate mongoTemplate = spy(this.mongoTemplate);
+		doThrow(new UncategorizedMongoDbException("Index conflict on User", null)).when(mongoTemplate)
+				.indexOps(User.class);
+		IndexBootstrap indexBootstrap = new IndexBootstrap();
+		ReflectionTestUtils.setField(indexBootstrap, "mongoTemplate", mongoTemplate);
+
+		indexBootstrap.ensureIndexes();
+
+		ExecutionException failure = assertThrows(ExecutionException.class, () -> indexBootstrap.ready().get());
+		assertEquals(Collections.singleton("User"),
+				((IndexBootstrapException) failure.getCause()).getFailures().keySet());
+		assertEquals(Status.DOWN, indexBootstrap.health().getStatus());
+		assertTrue(indexNames(ChangeStatus.class).contains("ticket_dateChangeStatus"));
+		assertTrue(indexNames(IdempotencyKey.class).contains("expiresAt_ttl"));
+	}
+
+	private Set<String> indexNames(Class<?> entity) {
+		Set<String> names = new HashSet<String>();
+		for (IndexInfo index : this.mongoTemplate.indexOps(entity).getIndexInfo()) {
+			names.add(index.getName());
+		}
+		return names;
+	}
+}
@@ -0,0 +1,54 @@
+package com.fseiji.helpdesk.api.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.service.TicketImageService;
+
+@SpringBootTest
+class InlineImageMigrationTests {
+
+	@Autowired
+	private InlineImageMigration inlineImageMigration;
+
+	@Autowired
+	private TicketImageService ticketImageService;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Test
+	void migratesOnStartupInBackground() throws Exception {
+		assertNotNull(this.inlineImageMigration.done().get(30, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void migratesInlineImagesOffTheCallingThread() throws Exception {
+		this.ticketRepository.deleteAll();
+		this.mongoTemplate.insert(new Document("title", "inline").append("number", 1).append("image", "aW1hZ2U="),
+				this.mongoTemplate.getCollectionName(Ticket.class));
+		InlineImageMigration migration = new InlineImageMigration();
+		ReflectionTestUtils.setField(migration, "ticketImageService", this.ticketImageService);
+
+		migration.onApplicationEvent(null);
+
+		assertEquals(1, migration.done().get(30, TimeUnit.SECONDS).intValue());
+		assertNotNull(this.mongoTemplate.findOne(new Query(where("number").is(1)), Ticket.class).getImageId());
+	}
+}
@@ -0,0 +1,26 @@
+package com.fseiji.helpdesk.api.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.fseiji.helpdesk.api.repository.ReactiveTicketRepository;
+import com.mongodb.reactivestreams.client.MongoClient;
+
+@SpringBootTest
+class ReactiveMongoExclusionTests {
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Test
+	void servletContextHasNoReactiveMongoBeans() {
+		assertEquals(0, this.applicationContext.getBeanNamesForType(MongoClient.class).length);
+		assertEquals(0, this.applicationContext.getBeanNamesForType(ReactiveMongoTemplate.class).length);
+		assertEquals(0, this.applicationContext.getBeanNamesForType(ReactiveTicketRepository.class).length);
+	}
+}
@@ -0,0 +1,50 @@
+package com.fseiji.helpdesk.api.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+
+@SpringBootTest
+class TitleGramsBackfillTests {
+
+	@Autowired
+	private TitleGramsBackfill titleGramsBackfill;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Test
+	void fillsOnStartupInBackground() throws Exception {
+		assertNotNull(this.titleGramsBackfill.done().get(30, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void fillsTitleGramsOffTheCallingThread() throws Exception {
+		this.ticketRepository.deleteAll();
+		this.mongoTemplate.insert(new Document("title", "Printer").append("number", 1),
+				this.mongoTemplate.getCollectionName(Ticket.class));
+		TitleGramsBackfill backfill = new TitleGramsBackfill();
+		ReflectionTestUtils.setField(backfill, "ticketRepository", this.ticketRepository);
+
+		backfill.onApplicationEvent(null);
+
+		assertEquals(1, backfill.done().get(30, TimeUnit.SECONDS).intValue());
+		assertEquals(0, this.mongoTemplate.count(new Query(where("titleGrams").exists(false)), Ticket.class));
+	}
+}
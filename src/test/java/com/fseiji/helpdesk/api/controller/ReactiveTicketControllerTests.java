@@ -0,0 +1,159 @@
+package com.fseiji.helpdesk.api.controller;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.ProfileEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.repository.UserRepository;
+import com.fseiji.helpdesk.api.security.jwt.JwtTokenUtil;
+import com.fseiji.helpdesk.api.service.TicketService;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "spring.main.web-application-type=reactive")
+class ReactiveTicketControllerTests {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private TicketService ticketService;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private UserDetailsService userDetailsService;
+
+	@Autowired
+	private JwtTokenUtil jwtTokenUtil;
+
+	private User customer;
+
+	private String customerToken;
+
+	private String technicianToken;
+
+	@BeforeEach
+	void setUp() {
+		this.ticketRepository.deleteAll();
+		this.ticketService.reconcileSummary();
+		this.customer = user("reactive-customer@helpdesk.com", ProfileEnum.ROLE_CUSTOMER);
+		this.customerToken = token(this.customer);
+		this.technicianToken = token(user("reactive-technician@helpdesk.com", ProfileEnum.ROLE_TECHNICAN));
+	}
+
+	@Test
+	void listAsTechnicianReturnsAllTickets() {
+		newTicket(1, this.customer);
+		newTicket(2, user("reactive-other@helpdesk.com", ProfileEnum.ROLE_CUSTOMER));
+
+		this.webTestClient.get().uri("/api/ticket/0/10").header(HttpHeaders.AUTHORIZATION, this.technicianToken)
+				.exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.data.totalElements").isEqualTo(2)
+				.jsonPath("$.data.content[0].number").isEqualTo(2)
+				.jsonPath("$.data.content[0].description").doesNotExist();
+	}
+
+	@Test
+	void listAsCustomerOnlyReturnsOwnTickets() {
+		Ticket own = newTicket(1, this.customer);
+		newTicket(2, user("reactive-other@helpdesk.com", ProfileEnum.ROLE_CUSTOMER));
+
+		this.webTestClient.get().uri("/api/ticket/0/10").header(HttpHeaders.AUTHORIZATION, this.customerToken)
+				.exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.data.totalElements").isEqualTo(1)
+				.jsonPath("$.data.content[0].id").isEqualTo(own.getId());
+	}
+
+	@Test
+	void findByIdReturnsUsersAndHistory() {
+		Ticket ticket = newTicket(1, this.customer);
+		ChangeStatus changeStatus = new ChangeStatus();
+		changeStatus.setTicket(ticket);
+		changeStatus.setUserChange(this.customer);
+		changeStatus.setDateChangeStatus(new Date());
+		changeStatus.setStatus(StatusEnum.NEW);
+		this.ticketService.createChangeStatus(changeStatus);
+
+		this.webTestClient.get().uri("/api/ticket/" + ticket.getId())
+				.header(HttpHeaders.AUTHORIZATION, this.customerToken).exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.data.title").isEqualTo("Ticket 1")
+				.jsonPath("$.data.user.email").isEqualTo(this.customer.getEmail())
+				.jsonPath("$.data.user.password").doesNotExist()
+				.jsonPath("$.data.changes[0].status").isEqualTo("NEW")
+				.jsonPath("$.data.changes[0].userChange.email").isEqualTo(this.customer.getEmail());
+	}
+
+	@Test
+	void findByIdOfMissingTicketIsBadRequest() {
+		this.webTestClient.get().uri("/api/ticket/5f7f1c2e9d1b2c3d4e5f6a7b")
+				.header(HttpHeaders.AUTHORIZATION, this.customerToken).exchange().expectStatus().isBadRequest()
+				.expectBody().jsonPath("$.errors[0]").isEqualTo("Register not found id: 5f7f1c2e9d1b2c3d4e5f6a7b");
+	}
+
+	@Test
+	void findSummaryReadsCounters() {
+		newTicket(1, this.customer);
+		newTicket(2, this.customer);
+
+		this.webTestClient.get().uri("/api/ticket/summary").header(HttpHeaders.AUTHORIZATION, this.technicianToken)
+				.exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.data.amountNew").isEqualTo(2)
+				.jsonPath("$.data.amountClosed").isEqualTo(0);
+	}
+
+	@Test
+	void requestWithoutTokenIsUnauthorized() {
+		this.webTestClient.get().uri("/api/ticket/0/10").exchange().expectStatus().isUnauthorized();
+	}
+
+	@Test
+	void requestWithInvalidTokenIsUnauthorized() {
+		this.webTestClient.get().uri("/api/ticket/0/10").header(HttpHeaders.AUTHORIZATION, "invalid").exchange()
+				.expectStatus().isUnauthorized();
+	}
+
+	private User user(String email, ProfileEnum profile) {
+		User user = this.userRepository.findByEmail(email);
+		if (user == null) {
+			user = new User();
+			user.setEmail(email);
+			user.setPassword("123456");
+			user.setProfile(profile);
+			user = this.userRepository.save(user);
+		}
+		return user;
+	}
+
+	private String token(User user) {
+		return this.jwtTokenUtil.generateToken(this.userDetailsService.loadUserByUsername(user.getEmail()));
+	}
+
+	private Ticket newTicket(int number, User user) {
+		Ticket ticket = new Ticket();
+		ticket.setNumber(number);
+		ticket.setTitle("Ticket " + number);
+		ticket.setDescription("Description " + number);
+		ticket.setStatus(StatusEnum.NEW);
+		ticket.setPriority(PriorityEnum.NORMAL);
+		ticket.setDate(new Date(System.currentTimeMillis() + number));
+		ticket.setUser(user);
+		return this.ticketService.createOrUpdate(ticket);
+	}
+}
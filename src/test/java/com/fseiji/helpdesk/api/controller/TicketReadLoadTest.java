@@ -0,0 +1,232 @@
+package com.fseiji.helpdesk.api.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import com.fseiji.helpdesk.HelpDeskApplication;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.ProfileEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.UserRepository;
+import com.fseiji.helpdesk.api.security.jwt.JwtTokenUtil;
+import com.fseiji.helpdesk.api.service.TicketService;
+
+/**
+ * Compara os endpoints de leitura de ticket em modo servlet (Tomcat) e reativo
+ * (WebFlux/Netty): latência p50/p99 e quantidade de threads do servidor com
+ * várias conexões simultâneas. Cada modo sobe a aplicação com o MongoDB em
+ * memória dos testes (ou -Dtest.mongodb.uri). Executar com: mvn test-compile
+ * exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.fseiji.helpdesk.api.controller.TicketReadLoadTest
+ * [-Dloadtest.concurrency=200 -Dloadtest.requests=20000 -Dloadtest.tickets=1000]
+ */
+public class TicketReadLoadTest {
+
+	private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 200);
+	private static final int REQUESTS = Integer.getInteger("loadtest.requests", 20000);
+	private static final int TICKETS = Integer.getInteger("loadtest.tickets", 1000);
+
+	// threads que atendem as requisições em cada servidor
+	private static final List<String> SERVER_THREADS = Arrays.asList("http-nio-", "reactor-http-", "boundedElastic-");
+
+	public static void main(String[] args) throws Exception {
+		List<Result> results = new ArrayList<Result>();
+		for (String mode : Arrays.asList("servlet", "reactive")) {
+			results.add(run(mode));
+		}
+		System.out.println();
+		System.out.println(String.format("%-10s %10s %10s %10s %12s %14s", "mode", "req/s", "p50 (ms)", "p99 (ms)",
+				"errors", "server threads"));
+		for (Result result : results) {
+			System.out.println(String.format("%-10s %10.0f %10.2f %10.2f %12d %14d", result.mode, result.throughput,
+					result.p50, result.p99, result.errors, result.serverThreads));
+		}
+		System.exit(0);
+	}
+
+	private static Result run(String mode) throws Exception {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(HelpDeskApplication.class)
+				.properties("server.port=0", "spring.main.web-application-type=" + mode, "logging.level.root=WARN")
+				.run();
+		try {
+			String port = context.getEnvironment().getProperty("local.server.port");
+			String token = seed(context);
+			String[] paths = { "/api/ticket/0/20", "/api/ticket/summary", "/api/ticket/" + firstTicketId(context) };
+			// aquecimento: JIT, pools de conexão e caches
+			load(port, token, paths, Math.min(REQUESTS, 2000), null);
+			ServerThreadSampler sampler = new ServerThreadSampler();
+			Result result = load(port, token, paths, REQUESTS, sampler);
+			result.mode = mode;
+			return result;
+		} finally {
+			context.close();
+		}
+	}
+
+	private static String seed(ConfigurableApplicationContext context) {
+		UserRepository userRepository = context.getBean(UserRepository.class);
+		User technician = userRepository.findByEmail("loadtest@helpdesk.com");
+		if (technician == null) {
+			technician = new User();
+			technician.setEmail("loadtest@helpdesk.com");
+			technician.setPassword("123456");
+			technician.setProfile(ProfileEnum.ROLE_TECHNICAN);
+			technician = userRepository.save(technician);
+		}
+		TicketService ticketService = context.getBean(TicketService.class);
+		// com -Dtest.mongodb.uri os dois modos usam o mesmo banco: os tickets só são criados uma vez
+		int first = ticketService.listTicket(0, 1).getTotalElements() == 0 ? 1 : TICKETS + 1;
+		for (int number = first; number <= TICKETS; number++) {
+			Ticket ticket = new Ticket();
+			ticket.setNumber(number);
+			ticket.setTitle("Ticket " + number);
+			ticket.setDescription("Load test ticket " + number);
+			ticket.setStatus(StatusEnum.NEW);
+			ticket.setPriority(PriorityEnum.NORMAL);
+			ticket.setDate(new Date());
+			ticket.setUser(technician);
+			ticketService.createOrUpdate(ticket);
+		}
+		return context.getBean(JwtTokenUtil.class)
+				.generateToken(context.getBean(UserDetailsService.class).loadUserByUsername(technician.getEmail()));
+	}
+
+	private static String firstTicketId(ConfigurableApplicationContext context) {
+		return context.getBean(TicketService.class).listTicket(0, 1).getContent().get(0).getId();
+	}
+
+	private static Result load(String port, String token, String[] paths, int requests, ServerThreadSampler sampler)
+			throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger errors = new AtomicInteger();
+		long[] latencies = new long[requests];
+		if (sampler != null) {
+			sampler.start();
+		}
+		long start = System.nanoTime();
+		List<Future<?>> workers = new ArrayList<Future<?>>();
+		for (int i = 0; i < CONCURRENCY; i++) {
+			workers.add(clients.submit(() -> {
+				int request;
+				while ((request = next.getAndIncrement()) < requests) {
+					long begin = System.nanoTime();
+					if (!get("http://localhost:" + port + paths[request % paths.length], token)) {
+						errors.incrementAndGet();
+					}
+					latencies[request] = System.nanoTime() - begin;
+				}
+			}));
+		}
+		for (Future<?> worker : workers) {
+			worker.get();
+		}
+		long elapsed = System.nanoTime() - start;
+		clients.shutdown();
+		clients.awaitTermination(1, TimeUnit.MINUTES);
+
+		Result result = new Result();
+		if (sampler != null) {
+			result.serverThreads = sampler.finish();
+		}
+		Arrays.sort(latencies);
+		result.p50 = latencies[(int) (requests * 0.50)] / 1_000_000.0;
+		result.p99 = latencies[Math.min(requests - 1, (int) (requests * 0.99))] / 1_000_000.0;
+		result.throughput = requests / (elapsed / 1_000_000_000.0);
+		result.errors = errors.get();
+		return result;
+	}
+
+	private static boolean get(String url, String token) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+			connection.setRequestProperty("Authorization", token);
+			int status = connection.getResponseCode();
+			// lê a resposta inteira para a conexão voltar ao keep-alive
+			try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+				if (body != null) {
+					byte[] buffer = new byte[8192];
+					while (body.read(buffer) != -1) {
+					}
+				}
+			}
+			return status == 200;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	// maior quantidade de threads do servidor vivas ao mesmo tempo durante a carga
+	private static class ServerThreadSampler extends Thread {
+
+		private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		private volatile boolean running = true;
+		private volatile int peak;
+
+		ServerThreadSampler() {
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (this.running) {
+				int count = 0;
+				for (ThreadInfo info : this.threads.getThreadInfo(this.threads.getAllThreadIds())) {
+					if (info != null && isServerThread(info.getThreadName())) {
+						count++;
+					}
+				}
+				this.peak = Math.max(this.peak, count);
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		int finish() throws InterruptedException {
+			this.running = false;
+			join();
+			return this.peak;
+		}
+
+		private boolean isServerThread(String name) {
+			for (String prefix : SERVER_THREADS) {
+				if (name.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static class Result {
+		String mode;
+		double throughput;
+		double p50;
+		double p99;
+		int errors;
+		int serverThreads;
+	}
+}
@@ -0,0 +1,212 @@
+package com.fseiji.helpdesk.api.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.fseiji.helpdesk.MongoCommandCounter;
+import com.fseiji.helpdesk.api.config.IndexBootstrap;
+import com.fseiji.helpdesk.api.dto.TicketCursor;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.ProfileEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+
+/**
+ * Roda explain em cada consulta do TicketRepository e do
+ * ChangeStatusRepository e falha se alguma cair em COLLSCAN. O servidor em
+ * memória dos testes não tem explain, então este teste só roda com um MongoDB
+ * real: mvn test -Dtest.mongodb.uri=mongodb://localhost:27017
+ */
+@SpringBootTest(properties = "spring.data.mongodb.database=help-desk-explain")
+@EnabledIfSystemProperty(named = "test.mongodb.uri", matches = ".+")
+class QueryPlanTests {
+
+	// comandos que passam pelo planner; insert, createIndexes etc. não são conferidos
+	private static final Set<String> EXPLAINABLE = new HashSet<String>(
+			Arrays.asList("find", "aggregate", "count", "distinct", "findAndModify", "update", "delete"));
+
+	@Autowired
+	private IndexBootstrap indexBootstrap;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private ChangeStatusRepository changeStatusRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private MongoCommandCounter mongoCommandCounter;
+
+	private User user;
+
+	private Ticket ticket;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.indexBootstrap.ready().get(60, TimeUnit.SECONDS);
+		this.changeStatusRepository.deleteAll();
+		this.ticketRepository.deleteAll();
+		this.userRepository.deleteAll();
+		this.user = this.userRepository.save(newUser("customer@plan.test"));
+		for (int i = 0; i < 20; i++) {
+			Ticket ticket = new Ticket();
+			ticket.setTitle("Ticket " + (i + 1));
+			ticket.setNumber(i + 1);
+			ticket.setStatus(i % 2 == 0 ? StatusEnum.NEW : StatusEnum.ASSIGNED);
+			ticket.setPriority(i % 3 == 0 ? PriorityEnum.HIGH : PriorityEnum.NORMAL);
+			ticket.setDate(new Date(1000L * i));
+			ticket.setUser(this.user);
+			ticket.setAssignedUser(this.user);
+			this.ticket = this.ticketRepository.save(ticket);
+			ChangeStatus changeStatus = new ChangeStatus();
+			changeStatus.setTicket(this.ticket);
+			changeStatus.setUserChange(this.user);
+			changeStatus.setStatus(ticket.getStatus());
+			changeStatus.setDateChangeStatus(new Date());
+			this.changeStatusRepository.save(changeStatus);
+		}
+	}
+
+	@Test
+	void ticketRepositoryQueriesUseIndexes() {
+		String userId = this.user.getId();
+		String ticketId = this.ticket.getId();
+		assertIndexed("findAllByOrderByDateDesc",
+				() -> this.ticketRepository.findAllByOrderByDateDesc(PageRequest.of(1, 5)));
+		assertIndexed("findByNumber", () -> this.ticketRepository.findByNumber(3, PageRequest.of(0, 5)));
+		assertIndexed("findTopByOrderByNumberDesc", () -> this.ticketRepository.findTopByOrderByNumberDesc());
+		assertIndexed("findById", () -> this.ticketRepository.findById(ticketId));
+		assertIndexed("findDetailById", () -> this.ticketRepository.findDetailById(ticketId));
+		assertIndexed("findPageByFilter(user)",
+				() -> this.ticketRepository.findPageByFilter(filter("", "", "", userId, null), PageRequest.of(1, 5)));
+		assertIndexed("findPageByFilter(user, status, priority, title)", () -> this.ticketRepository
+				.findPageByFilter(filter("ticket", "NEW", "HIGH", userId, null), PageRequest.of(1, 2)));
+		assertIndexed("findPageByFilter(assignedUser)",
+				() -> this.ticketRepository.findPageByFilter(filter("", "", "", null, userId), PageRequest.of(1, 5)));
+		assertIndexed("findPageByFilter(assignedUser, status)", () -> this.ticketRepository
+				.findPageByFilter(filter("", "ASSIGNED", "", null, userId), PageRequest.of(1, 5)));
+		assertIndexed("findPageByFilter(status)",
+				() -> this.ticketRepository.findPageByFilter(filter("", "NEW", "", null, null), PageRequest.of(1, 5)));
+		assertIndexed("findPageByFilter(status, priority)", () -> this.ticketRepository
+				.findPageByFilter(filter("", "NEW", "HIGH", null, null), PageRequest.of(1, 2)));
+		assertIndexed("findPageByFilter(title)", () -> this.ticketRepository
+				.findPageByFilter(filter("ticket", "", "", null, null), PageRequest.of(1, 5)));
+		assertIndexed("countByFilter(title)",
+				() -> this.ticketRepository.countByFilter(filter("icket 1", "", "", null, null)));
+		assertIndexed("findByFilterAfter(status)", () -> this.ticketRepository.findByFilterAfter(
+				filter("", "NEW", "", null, null), new TicketCursor(this.ticket.getDate(), ticketId), 5));
+		assertIndexed("findSliceByFilter(assignedUser)", () -> this.ticketRepository
+				.findSliceByFilter(filter("", "", "", null, userId), PageRequest.of(1, 5)));
+		assertIndexed("countByFilter(user, status)",
+				() -> this.ticketRepository.countByFilter(filter("", "NEW", "", userId, null)));
+		assertIndexed("updateImageId", () -> this.ticketRepository.updateImageId(ticketId, null));
+		assertIndexed("searchText(user)",
+				() -> this.ticketRepository.searchText("ticket", filter("", "", "", userId, null), null, 5, false));
+		assertIndexed("searchText(status, facets)",
+				() -> this.ticketRepository.searchText("ticket", filter("", "NEW", "", null, null), null, 5, true));
+		assertIndexed("fillTitleGrams", () -> this.ticketRepository.fillTitleGrams());
+		assertIndexed("findAndRemove", () -> this.ticketRepository.findAndRemove(ticketId));
+	}
+
+	@Test
+	void changeStatusRepositoryQueriesUseIndexes() {
+		String ticketId = this.ticket.getId();
+		assertIndexed("findByTicketIdOrderByDateChangeStatusDesc",
+				() -> this.changeStatusRepository.findByTicketIdOrderByDateChangeStatusDesc(ticketId).forEach(c -> {
+				}));
+	}
+
+	private void assertIndexed(String query, Runnable execution) {
+		this.mongoCommandCounter.reset();
+		execution.run();
+		List<BsonDocument> commands = new ArrayList<BsonDocument>();
+		for (BsonDocument command : this.mongoCommandCounter.history()) {
+			if (EXPLAINABLE.contains(command.getFirstKey())) {
+				commands.add(command);
+			}
+		}
+		assertFalse(commands.isEmpty(), query + " did not send any query");
+		for (BsonDocument command : commands) {
+			Document plan = explain(command);
+			assertFalse(hasCollectionScan(plan), query + " uses COLLSCAN: " + command.toJson() + " -> " + plan.toJson());
+		}
+	}
+
+	private Document explain(BsonDocument command) {
+		BsonDocument explained = new BsonDocument();
+		for (Map.Entry<String, BsonValue> entry : command.entrySet()) {
+			// campos de sessão e de roteamento que o driver acrescenta não são aceitos dentro do explain
+			if (!entry.getKey().startsWith("$") && !entry.getKey().equals("lsid")
+					&& !entry.getKey().equals("txnNumber")) {
+				explained.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return this.mongoTemplate.getDb().runCommand(
+				new BsonDocument("explain", explained).append("verbosity", new BsonString("queryPlanner")));
+	}
+
+	private boolean hasCollectionScan(Object value) {
+		if (value instanceof Document) {
+			Document document = (Document) value;
+			if ("COLLSCAN".equals(document.get("stage"))) {
+				return true;
+			}
+			for (Object child : document.values()) {
+				if (hasCollectionScan(child)) {
+					return true;
+				}
+			}
+		} else if (value instanceof List) {
+			for (Object child : (List<?>) value) {
+				if (hasCollectionScan(child)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private TicketFilter filter(String title, String status, String priority, String userId, String assignedUserId) {
+		TicketFilter filter = new TicketFilter(title, status, priority);
+		filter.setUserId(userId);
+		filter.setAssignedUserId(assignedUserId);
+		return filter;
+	}
+
+	private User newUser(String email) {
+		User user = new User();
+		user.setEmail(email);
+		user.setPassword("123456");
+		user.setProfile(ProfileEnum.ROLE_CUSTOMER);
+		return user;
+	}
+}
@@ -0,0 +1,69 @@
+package com.fseiji.helpdesk.api.security.jwt;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Compara o caminho do JwtAuthenticationTokenFilter com e sem o cache de
+ * claims. Executar com: mvn test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.fseiji.helpdesk.api.security.jwt.JwtTokenUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenUtilBenchmark {
+
+	private JwtTokenUtil jwtTokenUtil;
+	private JwtUser user;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		this.jwtTokenUtil = JwtTokenUtilTests.newJwtTokenUtil();
+		this.user = new JwtUser("1", "user@helpdesk.com", "", new ArrayList<>());
+		this.token = this.jwtTokenUtil.generateToken(this.user);
+	}
+
+	// o que o filtro fazia antes: três parses com verificação da assinatura
+	@Benchmark
+	public void parseOnEveryCall(Blackhole blackhole) {
+		Claims username = Jwts.parser().setSigningKey("project_key").parseClaimsJws(this.token).getBody();
+		Claims validateUsername = Jwts.parser().setSigningKey("project_key").parseClaimsJws(this.token).getBody();
+		Claims validateExpiration = Jwts.parser().setSigningKey("project_key").parseClaimsJws(this.token).getBody();
+		blackhole.consume(username.getSubject());
+		blackhole.consume(validateUsername.getSubject());
+		blackhole.consume(validateExpiration.getExpiration());
+	}
+
+	@Benchmark
+	public void cachedClaims(Blackhole blackhole) {
+		blackhole.consume(this.jwtTokenUtil.getUsernameFromToken(this.token));
+		blackhole.consume(this.jwtTokenUtil.validateToken(this.token, this.user));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JwtTokenUtilBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,76 @@
+package com.fseiji.helpdesk.api.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JwtTokenUtilTests {
+
+	private JwtTokenUtil jwtTokenUtil;
+	private SimpleMeterRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		this.jwtTokenUtil = newJwtTokenUtil();
+		this.registry = new SimpleMeterRegistry();
+		this.jwtTokenUtil.bindTo(this.registry);
+	}
+
+	@Test
+	void tokenIsVerifiedOncePerNode() {
+		JwtUser user = new JwtUser("1", "user@helpdesk.com", "", new ArrayList<>());
+		String token = this.jwtTokenUtil.generateToken(user);
+
+		assertEquals("user@helpdesk.com", this.jwtTokenUtil.getUsernameFromToken(token));
+		assertTrue(this.jwtTokenUtil.validateToken(token, user));
+
+		assertEquals(1, gets("miss"));
+		assertEquals(2, gets("hit"));
+	}
+
+	@Test
+	void tokenWithInvalidSignatureIsNotCached() {
+		JwtUser user = new JwtUser("1", "user@helpdesk.com", "", new ArrayList<>());
+		String token = this.jwtTokenUtil.generateToken(user);
+		String tampered = token.substring(0, token.length() - 2) + "AA";
+
+		assertNull(this.jwtTokenUtil.getUsernameFromToken(tampered));
+		assertNull(this.jwtTokenUtil.getUsernameFromToken(tampered));
+		assertEquals(2, gets("miss"));
+	}
+
+	@Test
+	void refreshTokenKeepsCachedClaims() {
+		JwtUser user = new JwtUser("1", "user@helpdesk.com", "", new ArrayList<>());
+		String token = this.jwtTokenUtil.generateToken(user);
+		Claims claims = ReflectionTestUtils.invokeMethod(this.jwtTokenUtil, "getClaimsFromToken", token);
+		Object created = claims.get(JwtTokenUtil.CLAIM_KEY_CREATED);
+
+		this.jwtTokenUtil.refreshToken(token);
+
+		assertEquals(created, claims.get(JwtTokenUtil.CLAIM_KEY_CREATED));
+	}
+
+	private double gets(String result) {
+		return this.registry.get("cache.gets").tag("cache", "jwtClaims").tag("result", result).functionCounter()
+				.count();
+	}
+
+	static JwtTokenUtil newJwtTokenUtil() {
+		JwtTokenUtil jwtTokenUtil = new JwtTokenUtil();
+		ReflectionTestUtils.setField(jwtTokenUtil, "secret", "project_key");
+		ReflectionTestUtils.setField(jwtTokenUtil, "expiration", 604800L);
+		ReflectionTestUtils.setField(jwtTokenUtil, "cacheMaximumSize", 10000L);
+		jwtTokenUtil.init();
+		return jwtTokenUtil;
+	}
+}
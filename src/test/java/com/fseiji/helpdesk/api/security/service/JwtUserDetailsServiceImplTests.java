@@ -0,0 +1,77 @@
+package com.fseiji.helpdesk.api.security.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.ProfileEnum;
+import com.fseiji.helpdesk.api.service.UserService;
+
+class JwtUserDetailsServiceImplTests {
+
+	private UserService userService;
+	private JwtUserCache jwtUserCache;
+	private JwtUserDetailsServiceImpl userDetailsService;
+
+	@BeforeEach
+	void setUp() {
+		this.userService = mock(UserService.class);
+		this.jwtUserCache = new JwtUserCache();
+		ReflectionTestUtils.setField(this.jwtUserCache, "maximumSize", 100L);
+		ReflectionTestUtils.setField(this.jwtUserCache, "expiration", 300L);
+		this.jwtUserCache.init();
+		this.userDetailsService = new JwtUserDetailsServiceImpl();
+		ReflectionTestUtils.setField(this.userDetailsService, "userService", this.userService);
+		ReflectionTestUtils.setField(this.userDetailsService, "jwtUserCache", this.jwtUserCache);
+	}
+
+	@Test
+	void loadUserByUsernameHitsDatabaseOnce() {
+		when(this.userService.findByEmail("user@helpdesk.com")).thenReturn(newUser(ProfileEnum.ROLE_CUSTOMER));
+
+		this.userDetailsService.loadUserByUsername("user@helpdesk.com");
+		this.userDetailsService.loadUserByUsername("user@helpdesk.com");
+
+		verify(this.userService, times(1)).findByEmail("user@helpdesk.com");
+	}
+
+	@Test
+	void evictReloadsChangedUser() {
+		when(this.userService.findByEmail("user@helpdesk.com")).thenReturn(newUser(ProfileEnum.ROLE_CUSTOMER),
+				newUser(ProfileEnum.ROLE_TECHNICAN));
+		this.userDetailsService.loadUserByUsername("user@helpdesk.com");
+
+		this.jwtUserCache.evictById("1");
+
+		assertEquals("ROLE_TECHNICAN", this.userDetailsService.loadUserByUsername("user@helpdesk.com")
+				.getAuthorities().iterator().next().getAuthority());
+	}
+
+	@Test
+	void unknownUserIsNotCached() {
+		assertThrows(UsernameNotFoundException.class,
+				() -> this.userDetailsService.loadUserByUsername("unknown@helpdesk.com"));
+		assertThrows(UsernameNotFoundException.class,
+				() -> this.userDetailsService.loadUserByUsername("unknown@helpdesk.com"));
+
+		verify(this.userService, times(2)).findByEmail("unknown@helpdesk.com");
+	}
+
+	private User newUser(ProfileEnum profile) {
+		User user = new User();
+		user.setId("1");
+		user.setEmail("user@helpdesk.com");
+		user.setPassword("123456");
+		user.setProfile(profile);
+		return user;
+	}
+}
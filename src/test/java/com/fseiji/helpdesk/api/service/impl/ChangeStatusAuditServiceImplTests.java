@@ -0,0 +1,312 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.ChangeStatusRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChangeStatusAuditServiceImplTests {
+
+	private final ChangeStatusRepository repository = mock(ChangeStatusRepository.class);
+
+	// registros recebidos por cada insertMany, na ordem
+	private final List<List<ChangeStatus>> batches = Collections.synchronizedList(new ArrayList<List<ChangeStatus>>());
+
+	// registros gravados um a um (save), na ordem
+	private final List<ChangeStatus> saved = Collections.synchronizedList(new ArrayList<ChangeStatus>());
+
+	@BeforeEach
+	void setUp() {
+		when(this.repository.insert(anyList())).thenAnswer(invocation -> {
+			this.batches.add(new ArrayList<ChangeStatus>(invocation.getArgument(0)));
+			return invocation.getArgument(0);
+		});
+		when(this.repository.save(any(ChangeStatus.class))).thenAnswer(invocation -> {
+			this.saved.add(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		});
+	}
+
+	@Test
+	void recordWritesSynchronouslyWhenAsyncIsDisabled() throws Exception {
+		ChangeStatusAuditServiceImpl audit = newAudit(false, 10, 10, 10);
+
+		ChangeStatus changeStatus = newChangeStatus();
+		audit.record(changeStatus);
+		audit.shutdown();
+
+		verify(this.repository).save(changeStatus);
+		verify(this.repository, never()).insert(anyList());
+	}
+
+	@Test
+	void recordFlushesBySize() throws Exception {
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 100, 3, 10_000);
+		for (int i = 0; i < 3; i++) {
+			audit.record(newChangeStatus());
+		}
+
+		// o lote fecha ao completar 3 registros, sem esperar o intervalo
+		waitFor(() -> this.batches.size() == 1);
+		assertEquals(3, this.batches.get(0).size());
+		audit.shutdown();
+	}
+
+	@Test
+	void recordFlushesByTime() throws Exception {
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 100, 500, 50);
+
+		audit.record(newChangeStatus());
+
+		waitFor(() -> this.batches.size() == 1);
+		assertEquals(1, this.batches.get(0).size());
+		audit.shutdown();
+	}
+
+	@Test
+	void shutdownDrainsQueue() throws Exception {
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 100, 500, 10_000);
+		for (int i = 0; i < 5; i++) {
+			audit.record(newChangeStatus());
+		}
+
+		long start = System.nanoTime();
+		audit.shutdown();
+
+		assertEquals(5, this.batches.stream().mapToInt(List::size).sum());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+	}
+
+	@Test
+	void recordWritesItselfWhenQueueStaysFull() throws Exception {
+		CountDownLatch inserting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			inserting.countDown();
+			release.await();
+			this.batches.add(new ArrayList<ChangeStatus>(invocation.getArgument(0)));
+			return invocation.getArgument(0);
+		}).when(this.repository).insert(anyList());
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 1, 1, 10);
+
+		// o primeiro fica preso no insert, o segundo ocupa a fila e o terceiro não tem espaço
+		audit.record(newChangeStatus());
+		assertTrue(inserting.await(5, TimeUnit.SECONDS));
+		audit.record(newChangeStatus());
+		ChangeStatus overflow = newChangeStatus();
+		audit.record(overflow);
+
+		verify(this.repository).save(overflow);
+		release.countDown();
+		audit.shutdown();
+		assertEquals(2, this.batches.size());
+	}
+
+	@Test
+	void recordDuringShutdownIsNeverLeftInQueue() throws Exception {
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 10_000, 50, 10);
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicInteger recorded = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread(() -> {
+				while (!stop.get()) {
+					audit.record(newChangeStatus());
+					recorded.incrementAndGet();
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		waitFor(() -> recorded.get() > 1_000);
+
+		audit.shutdown();
+		stop.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// cada registro foi gravado em lote pela thread ou pela própria requisição, depois do desligamento
+		int written = this.batches.stream().mapToInt(List::size).sum() + this.saved.size();
+		assertEquals(recorded.get(), written);
+		BlockingQueue<?> queue = (BlockingQueue<?>) ReflectionTestUtils.getField(audit, "queue");
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void failedBatchIsWrittenOneByOne() throws Exception {
+		doThrow(new DataIntegrityViolationException("insertMany failed")).when(this.repository).insert(anyList());
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 100, 3, 10);
+		for (int i = 0; i < 3; i++) {
+			audit.record(newChangeStatus());
+		}
+
+		waitFor(() -> this.saved.size() == 3);
+		audit.shutdown();
+		// os ids são definidos antes do insertMany, então regravar não duplica
+		assertTrue(this.saved.stream().allMatch(changeStatus -> changeStatus.getId() != null));
+	}
+
+	@Test
+	void failedWritesAreRetriedAndCounted() throws Exception {
+		doThrow(new DataIntegrityViolationException("insertMany failed")).when(this.repository).insert(anyList());
+		AtomicInteger attempts = new AtomicInteger();
+		doAnswer(invocation -> {
+			if (attempts.incrementAndGet() <= 2) {
+				throw new DataAccessResourceFailureException("save failed");
+			}
+			this.saved.add(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		}).when(this.repository).save(any(ChangeStatus.class));
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 100, 1, 10);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		audit.bindTo(registry);
+
+		audit.record(newChangeStatus());
+
+		waitFor(() -> this.saved.size() == 1);
+		audit.shutdown();
+		assertEquals(2.0, registry.get("audit.write.failures").functionCounter().count());
+		assertEquals(0.0, registry.get("audit.records.lost").functionCounter().count());
+	}
+
+	@Test
+	void unavailableDatabaseSkipsOneByOne() throws Exception {
+		AtomicInteger inserts = new AtomicInteger();
+		doAnswer(invocation -> {
+			inserts.incrementAndGet();
+			throw new DataAccessResourceFailureException("connection refused");
+		}).when(this.repository).insert(anyList());
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 100, 3, 10);
+		ReflectionTestUtils.setField(audit, "shutdownTimeout", 100L);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		audit.bindTo(registry);
+		for (int i = 0; i < 3; i++) {
+			audit.record(newChangeStatus());
+		}
+
+		// o lote é tentado de novo inteiro, sem gravações um a um
+		waitFor(() -> inserts.get() >= 2);
+		audit.shutdown();
+		verify(this.repository, never()).save(any(ChangeStatus.class));
+		assertEquals(3.0, registry.get("audit.records.lost").functionCounter().count());
+	}
+
+	@Test
+	void shutdownGivesUpAfterDeadline() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			release.await();
+			return invocation.getArgument(0);
+		}).when(this.repository).insert(anyList());
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 100, 1, 10);
+		ReflectionTestUtils.setField(audit, "shutdownTimeout", 200L);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		audit.bindTo(registry);
+
+		// o primeiro prende a thread no insert e os outros dois ficam na fila
+		audit.record(newChangeStatus());
+		BlockingQueue<?> queue = (BlockingQueue<?>) ReflectionTestUtils.getField(audit, "queue");
+		waitFor(queue::isEmpty);
+		audit.record(newChangeStatus());
+		audit.record(newChangeStatus());
+
+		long start = System.nanoTime();
+		audit.shutdown();
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+		assertEquals(2.0, registry.get("audit.records.lost").functionCounter().count());
+		release.countDown();
+	}
+
+	@Test
+	void recordWaitingForSpaceDoesNotHoldShutdown() throws Exception {
+		CountDownLatch inserting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			inserting.countDown();
+			release.await();
+			return invocation.getArgument(0);
+		}).when(this.repository).insert(anyList());
+		ChangeStatusAuditServiceImpl audit = newAudit(true, 1, 1, 10);
+		ReflectionTestUtils.setField(audit, "offerTimeout", 10_000L);
+		ReflectionTestUtils.setField(audit, "shutdownTimeout", 200L);
+		audit.record(newChangeStatus());
+		assertTrue(inserting.await(5, TimeUnit.SECONDS));
+		audit.record(newChangeStatus());
+
+		// a fila está cheia: esta requisição espera por espaço enquanto o desligamento começa
+		ChangeStatus waiting = newChangeStatus();
+		Thread thread = new Thread(() -> audit.record(waiting));
+		thread.start();
+		Thread.sleep(50);
+
+		long start = System.nanoTime();
+		audit.shutdown();
+		thread.join(5_000);
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+		// desligando, ela desiste da fila e grava o registro ela mesma
+		verify(this.repository).save(waiting);
+		release.countDown();
+	}
+
+	private ChangeStatusAuditServiceImpl newAudit(boolean async, int queueCapacity, int batchSize,
+			long flushInterval) {
+		ChangeStatusAuditServiceImpl audit = new ChangeStatusAuditServiceImpl();
+		ReflectionTestUtils.setField(audit, "changeStatusRepository", this.repository);
+		ReflectionTestUtils.setField(audit, "async", async);
+		ReflectionTestUtils.setField(audit, "queueCapacity", queueCapacity);
+		ReflectionTestUtils.setField(audit, "batchSize", batchSize);
+		ReflectionTestUtils.setField(audit, "flushInterval", flushInterval);
+		ReflectionTestUtils.setField(audit, "offerTimeout", 10L);
+		ReflectionTestUtils.setField(audit, "retryInterval", 10L);
+		ReflectionTestUtils.setField(audit, "shutdownTimeout", 5_000L);
+		audit.init();
+		return audit;
+	}
+
+	private ChangeStatus newChangeStatus() {
+		ChangeStatus changeStatus = new ChangeStatus();
+		changeStatus.setStatus(StatusEnum.ASSIGNED);
+		changeStatus.setDateChangeStatus(new Date());
+		return changeStatus;
+	}
+
+	private void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+}
@@ -0,0 +1,105 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.MongoCommandCounter;
+import com.fseiji.helpdesk.api.entity.IdempotencyKey;
+import com.fseiji.helpdesk.api.repository.IdempotencyKeyRepository;
+import com.fseiji.helpdesk.api.service.IdempotencyKeyInProgressException;
+import com.fseiji.helpdesk.api.service.IdempotencyKeyMismatchException;
+import com.fseiji.helpdesk.api.service.IdempotencyService;
+
+@SpringBootTest
+class IdempotencyServiceImplTests {
+
+	private static final String USER_ID = "5f0000000000000000000001";
+
+	private static final String FINGERPRINT = "fingerprint-1";
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+
+	@Autowired
+	private MongoCommandCounter mongoCommandCounter;
+
+	@BeforeEach
+	void setUp() {
+		this.idempotencyKeyRepository.deleteAll();
+		ReflectionTestUtils.invokeMethod(this.idempotencyService, "init");
+	}
+
+	@Test
+	void reserveRejectsKeyInProgress() {
+		assertNull(this.idempotencyService.reserve(USER_ID, "retry-1", FINGERPRINT));
+
+		assertThrows(IdempotencyKeyInProgressException.class,
+				() -> this.idempotencyService.reserve(USER_ID, "retry-1", FINGERPRINT));
+		// a mesma chave de outro usuário é outra reserva
+		assertNull(this.idempotencyService.reserve("5f0000000000000000000002", "retry-1", FINGERPRINT));
+	}
+
+	@Test
+	void reserveReturnsTicketOfCompletedKeyFromCache() {
+		this.idempotencyService.reserve(USER_ID, "retry-2", FINGERPRINT);
+		this.idempotencyService.complete(USER_ID, "retry-2", FINGERPRINT, "ticket-2");
+
+		this.mongoCommandCounter.reset();
+		assertEquals("ticket-2", this.idempotencyService.reserve(USER_ID, "retry-2", FINGERPRINT));
+		assertEquals(0, this.mongoCommandCounter.history().size());
+
+		IdempotencyKey stored = this.idempotencyKeyRepository.findById(USER_ID + ":retry-2").get();
+		assertTrue(stored.getExpiresAt().getTime() > System.currentTimeMillis() + 3_600_000);
+	}
+
+	@Test
+	void reserveReturnsTicketOfCompletedKeyFromStore() {
+		this.idempotencyService.reserve(USER_ID, "retry-3", FINGERPRINT);
+		this.idempotencyService.complete(USER_ID, "retry-3", FINGERPRINT, "ticket-3");
+		// outro nó, sem a chave no cache local
+		ReflectionTestUtils.invokeMethod(this.idempotencyService, "init");
+
+		assertEquals("ticket-3", this.idempotencyService.reserve(USER_ID, "retry-3", FINGERPRINT));
+	}
+
+	@Test
+	void releaseAllowsRetryAfterFailure() {
+		this.idempotencyService.reserve(USER_ID, "retry-4", FINGERPRINT);
+		this.idempotencyService.release(USER_ID, "retry-4");
+
+		assertNull(this.idempotencyService.reserve(USER_ID, "retry-4", FINGERPRINT));
+	}
+
+	@Test
+	void reserveRejectsCompletedKeyWithOtherFingerprint() {
+		this.idempotencyService.reserve(USER_ID, "retry-5", FINGERPRINT);
+		this.idempotencyService.complete(USER_ID, "retry-5", FINGERPRINT, "ticket-5");
+
+		assertThrows(IdempotencyKeyMismatchException.class,
+				() -> this.idempotencyService.reserve(USER_ID, "retry-5", "fingerprint-2"));
+		// outro nó, sem a chave no cache local
+		ReflectionTestUtils.invokeMethod(this.idempotencyService, "init");
+		assertThrows(IdempotencyKeyMismatchException.class,
+				() -> this.idempotencyService.reserve(USER_ID, "retry-5", "fingerprint-2"));
+		assertEquals("ticket-5", this.idempotencyService.reserve(USER_ID, "retry-5", FINGERPRINT));
+	}
+
+	@Test
+	void reserveRejectsKeyInProgressWithOtherFingerprint() {
+		this.idempotencyService.reserve(USER_ID, "retry-6", FINGERPRINT);
+
+		assertThrows(IdempotencyKeyMismatchException.class,
+				() -> this.idempotencyService.reserve(USER_ID, "retry-6", "fingerprint-2"));
+	}
+}
@@ -0,0 +1,87 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.api.repository.SequenceRepository;
+import com.fseiji.helpdesk.api.service.SequenceService;
+
+@SpringBootTest
+class SequenceServiceImplTests {
+
+	private static final String SEQUENCE = "test";
+	private static final int BLOCK_SIZE = 10;
+
+	@Autowired
+	private SequenceRepository sequenceRepository;
+
+	@BeforeEach
+	void setUp() {
+		this.sequenceRepository.deleteById(SEQUENCE);
+	}
+
+	@Test
+	void nextIsUniqueAcrossThreadsAndNodes() throws Exception {
+		SequenceService[] nodes = { newNode(), newNode() };
+		Set<Long> values = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < 8; i++) {
+			SequenceService node = nodes[i % 2];
+			futures.add(executor.submit(() -> {
+				for (int j = 0; j < 50; j++) {
+					assertTrue(values.add(node.next(SEQUENCE)));
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(400, values.size());
+		// 400 valores em blocos de 10: no máximo um bloco parcialmente usado por nó
+		long reserved = this.sequenceRepository.findById(SEQUENCE).get().getValue();
+		assertTrue(reserved <= 400 + 2 * BLOCK_SIZE);
+	}
+
+	@Test
+	void nextStartsAfterRaisedValue() {
+		SequenceService node = newNode();
+		node.raiseTo(SEQUENCE, 9998);
+
+		assertEquals(9999, node.next(SEQUENCE));
+		assertEquals(10000, node.next(SEQUENCE));
+	}
+
+	@Test
+	void raiseToDiscardsLocalBlockBelowRaisedValue() {
+		SequenceService node = newNode();
+		assertEquals(1, node.next(SEQUENCE));
+
+		node.raiseTo(SEQUENCE, 50);
+
+		assertEquals(51, node.next(SEQUENCE));
+	}
+
+	private SequenceService newNode() {
+		SequenceServiceImpl node = new SequenceServiceImpl();
+		ReflectionTestUtils.setField(node, "sequenceRepository", this.sequenceRepository);
+		ReflectionTestUtils.setField(node, "blockSize", BLOCK_SIZE);
+		return node;
+	}
+}
@@ -0,0 +1,211 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.service.TicketImageService;
+import com.fseiji.helpdesk.api.service.TicketService;
+import com.fseiji.helpdesk.api.service.ThumbnailService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+@SpringBootTest
+class ThumbnailServiceImplTests {
+
+	@Autowired
+	private ThumbnailService thumbnailService;
+
+	@Autowired
+	private TicketImageService ticketImageService;
+
+	@Autowired
+	private TicketService ticketService;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private GridFsTemplate gridFsTemplate;
+
+	@BeforeEach
+	void setUp() {
+		this.ticketRepository.deleteAll();
+		this.gridFsTemplate.delete(new Query());
+	}
+
+	@Test
+	void storeImageGeneratesThumbnailInBackground() throws Exception {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1));
+
+		String imageId = this.ticketImageService.storeImage(ticket.getId(), png(800, 400), "screen.png",
+				"image/png");
+
+		GridFsResource thumbnail = waitForThumbnail(imageId);
+		assertNotNull(thumbnail);
+		assertEquals("image/png", thumbnail.getContentType());
+		try (InputStream content = thumbnail.getInputStream()) {
+			BufferedImage image = ImageIO.read(content);
+			assertEquals(200, image.getWidth());
+			assertEquals(100, image.getHeight());
+		}
+	}
+
+	@Test
+	void largeImageIsSubsampledToThumbnail() throws Exception {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1));
+
+		String imageId = this.ticketImageService.storeImage(ticket.getId(), png(4000, 2000), "screen.png",
+				"image/png");
+
+		GridFsResource thumbnail = waitForThumbnail(imageId);
+		assertNotNull(thumbnail);
+		try (InputStream content = thumbnail.getInputStream()) {
+			BufferedImage image = ImageIO.read(content);
+			assertEquals(200, image.getWidth());
+			assertEquals(100, image.getHeight());
+		}
+	}
+
+	@Test
+	void imageAboveMaxPixelsHasNoThumbnail() throws Exception {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1));
+		Object maxPixels = ReflectionTestUtils.getField(this.thumbnailService, "maxPixels");
+		ReflectionTestUtils.setField(this.thumbnailService, "maxPixels", 10_000L);
+		try {
+			String imageId = this.ticketImageService.storeImage(ticket.getId(), png(200, 100), "screen.png",
+					"image/png");
+			// mesma geração da fila, mas nesta thread, para saber quando terminou
+			ReflectionTestUtils.invokeMethod(this.thumbnailService, "createThumbnail", imageId);
+
+			assertNull(this.thumbnailService.findThumbnail(imageId));
+		} finally {
+			ReflectionTestUtils.setField(this.thumbnailService, "maxPixels", maxPixels);
+		}
+	}
+
+	@Test
+	void deleteImageRemovesThumbnail() throws Exception {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1));
+		String imageId = this.ticketImageService.storeImage(ticket.getId(), png(300, 300), "screen.png",
+				"image/png");
+		assertNotNull(waitForThumbnail(imageId));
+
+		this.ticketService.delete(ticket.getId());
+
+		assertNull(this.thumbnailService.findThumbnail(imageId));
+	}
+
+	@Test
+	void concurrentGenerationsLeaveOneThumbnail() throws Exception {
+		// gravada direto no GridFS, sem a geração do upload
+		String imageId = this.gridFsTemplate.store(png(400, 400), "screen.png", "image/png").toHexString();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				ReflectionTestUtils.invokeMethod(this.thumbnailService, "createThumbnail", imageId);
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		List<GridFSFile> thumbnails = this.gridFsTemplate.find(new Query(where("metadata.thumbnailOf").is(imageId)))
+				.into(new ArrayList<GridFSFile>());
+		assertEquals(1, thumbnails.size());
+	}
+
+	@Test
+	void generateDoesNotBlockWhenQueueIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		GridFsTemplate gridFsTemplate = mock(GridFsTemplate.class);
+		when(gridFsTemplate.findOne(any(Query.class))).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return null;
+		});
+		ThumbnailServiceImpl thumbnailService = new ThumbnailServiceImpl();
+		ReflectionTestUtils.setField(thumbnailService, "gridFsTemplate", gridFsTemplate);
+		ReflectionTestUtils.setField(thumbnailService, "threads", 1);
+		ReflectionTestUtils.setField(thumbnailService, "queueCapacity", 1);
+		thumbnailService.init();
+		try {
+			assertTrue(thumbnailService.generate(new ObjectId().toHexString()));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			assertTrue(thumbnailService.generate(new ObjectId().toHexString()));
+			// pool ocupado e fila cheia: descarta na hora em vez de bloquear quem chamou
+			assertFalse(thumbnailService.generate(new ObjectId().toHexString()));
+		} finally {
+			release.countDown();
+			thumbnailService.shutdown();
+		}
+	}
+
+	private GridFsResource waitForThumbnail(String imageId) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			GridFsResource thumbnail = this.thumbnailService.findThumbnail(imageId);
+			if (thumbnail != null) {
+				return thumbnail;
+			}
+			Thread.sleep(50);
+		}
+		return null;
+	}
+
+	private InputStream png(int width, int height) throws Exception {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", content);
+		return new ByteArrayInputStream(content.toByteArray());
+	}
+
+	private Ticket newTicket(int number) {
+		Ticket ticket = new Ticket();
+		ticket.setTitle("Ticket " + number);
+		ticket.setNumber(number);
+		ticket.setStatus(StatusEnum.NEW);
+		ticket.setPriority(PriorityEnum.NORMAL);
+		ticket.setDate(new Date());
+		return ticket;
+	}
+}
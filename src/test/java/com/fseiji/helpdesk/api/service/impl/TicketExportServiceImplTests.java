@@ -0,0 +1,147 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fseiji.helpdesk.MongoCommandCounter;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.ExportFormatEnum;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.service.TicketExportService;
+import com.fseiji.helpdesk.api.service.TicketService;
+
+@SpringBootTest
+class TicketExportServiceImplTests {
+
+	private static final String USER_ID = "5f0000000000000000000001";
+
+	@Autowired
+	private TicketExportService ticketExportService;
+
+	@Autowired
+	private TicketService ticketService;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private MongoCommandCounter mongoCommandCounter;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeEach
+	void setUp() {
+		this.ticketRepository.deleteAll();
+	}
+
+	@Test
+	void exportCsvAppliesFiltersAndEscapesFields() throws Exception {
+		this.ticketRepository.insert(newTicket(1, StatusEnum.NEW, "Printer, 2nd floor", "says \"jammed\"\nagain"));
+		this.ticketRepository.insert(newTicket(2, StatusEnum.CLOSED, "Closed one", null));
+		this.ticketRepository.insert(newTicket(3, StatusEnum.NEW, "Mouse", null));
+
+		String csv = export(new TicketFilter("", "NEW", ""), ExportFormatEnum.CSV);
+		String[] lines = csv.split("\r\n");
+
+		assertEquals(3, lines.length);
+		assertEquals("id,number,title,status,priority,date,userId,assignedUserId,description", lines[0]);
+		assertTrue(lines[1].matches("[0-9a-f]{24},3,Mouse,NEW,HIGH,1970-01-01T00:00:03Z," + USER_ID + ",,"));
+		assertTrue(lines[2].endsWith(
+				",1,\"Printer, 2nd floor\",NEW,HIGH,1970-01-01T00:00:01Z," + USER_ID + ",,\"says \"\"jammed\"\"\nagain\""));
+	}
+
+	@Test
+	void exportCsvNeutralizesFormulas() throws Exception {
+		this.ticketRepository.insert(newTicket(1, StatusEnum.NEW, "=HYPERLINK(\"http://evil\",\"x\")", "@SUM(A1)"));
+		this.ticketRepository.insert(newTicket(2, StatusEnum.NEW, "+1", "-1"));
+		this.ticketRepository.insert(newTicket(3, StatusEnum.NEW, "\tcmd", "\rcmd"));
+
+		String[] lines = export(new TicketFilter(), ExportFormatEnum.CSV).split("\r\n");
+
+		assertTrue(lines[1].contains(",3,\"'\tcmd\",") && lines[1].endsWith(",\"'\rcmd\""));
+		assertTrue(lines[2].contains(",2,\"'+1\",") && lines[2].endsWith(",\"'-1\""));
+		assertTrue(lines[3].contains(",1,\"'=HYPERLINK(\"\"http://evil\"\",\"\"x\"\")\",")
+				&& lines[3].endsWith(",\"'@SUM(A1)\""));
+	}
+
+	@Test
+	void exportNdjsonWritesOneTicketPerLine() throws Exception {
+		for (int i = 1; i <= 3; i++) {
+			this.ticketRepository.insert(newTicket(i, StatusEnum.NEW, "Ticket " + i, "description " + i));
+		}
+
+		String[] lines = export(new TicketFilter(), ExportFormatEnum.NDJSON).split("\n");
+
+		assertEquals(3, lines.length);
+		JsonNode first = this.objectMapper.readTree(lines[0]);
+		assertEquals(3, first.get("number").asInt());
+		assertEquals(USER_ID, first.get("userId").asText());
+		assertEquals("description 3", first.get("description").asText());
+	}
+
+	@Test
+	void exportStopsCursorWhenClientDisconnects() {
+		List<Ticket> tickets = new ArrayList<Ticket>();
+		for (int i = 1; i <= 1200; i++) {
+			tickets.add(newTicket(i, StatusEnum.NEW, "Ticket " + i, null));
+		}
+		this.ticketRepository.insert(tickets);
+		OutputStream disconnected = new OutputStream() {
+
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+		};
+
+		this.mongoCommandCounter.reset();
+		assertThrows(IOException.class, () -> this.ticketExportService
+				.write(this.ticketService.streamByFilter(new TicketFilter()), ExportFormatEnum.NDJSON, disconnected));
+
+		// só o primeiro lote foi lido e o cursor foi encerrado no servidor
+		assertEquals(1, this.mongoCommandCounter.count("find"));
+		assertEquals(0, this.mongoCommandCounter.count("getMore"));
+		assertEquals(1, this.mongoCommandCounter.count("killCursors"));
+	}
+
+	private String export(TicketFilter filter, ExportFormatEnum format) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		this.ticketExportService.write(this.ticketService.streamByFilter(filter), format, content);
+		return new String(content.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private Ticket newTicket(int number, StatusEnum status, String title, String description) {
+		User user = new User();
+		user.setId(USER_ID);
+		Ticket ticket = new Ticket();
+		ticket.setTitle(title);
+		ticket.setDescription(description);
+		ticket.setNumber(number);
+		ticket.setStatus(status);
+		ticket.setPriority(PriorityEnum.HIGH);
+		ticket.setDate(new Date(number * 1000L));
+		ticket.setUser(user);
+		return ticket;
+	}
+}
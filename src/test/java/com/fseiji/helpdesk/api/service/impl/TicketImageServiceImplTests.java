@@ -0,0 +1,204 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.util.Base64;
+import java.util.Date;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.StreamUtils;
+
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.service.TicketImageService;
+import com.fseiji.helpdesk.api.service.TicketService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TicketImageServiceImplTests {
+
+	private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', 1, 2, 3, 4, 5, 6, 7, 8 };
+
+	@Autowired
+	private TicketImageService ticketImageService;
+
+	@Autowired
+	private TicketService ticketService;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private GridFsTemplate gridFsTemplate;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		this.ticketRepository.deleteAll();
+		this.gridFsTemplate.delete(new Query());
+	}
+
+	@Test
+	void storeImageKeepsOnlyReferenceInTicket() throws Exception {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1));
+
+		String imageId = this.ticketImageService.storeImage(ticket.getId(), new ByteArrayInputStream(PNG), "a.png",
+				"image/png");
+
+		assertEquals(imageId, this.ticketService.findById(ticket.getId()).get().getImageId());
+		assertArrayEquals(PNG,
+				StreamUtils.copyToByteArray(this.ticketImageService.findImage(imageId).getInputStream()));
+		assertEquals("image/png", this.ticketImageService.findImage(imageId).getContentType());
+	}
+
+	@Test
+	void storeImageReplacesPreviousFile() {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1));
+		String first = this.ticketImageService.storeImage(ticket.getId(), new ByteArrayInputStream(PNG), "a.png",
+				"image/png");
+
+		String second = this.ticketImageService.storeImage(ticket.getId(), new ByteArrayInputStream(PNG), "b.png",
+				"image/png");
+
+		assertNull(this.ticketImageService.findImage(first));
+		assertNotNull(this.ticketImageService.findImage(second));
+	}
+
+	@Test
+	void storeImageOfUnknownTicket() {
+		assertNull(this.ticketImageService.storeImage("5f8a0c0e1c9d440000a1b2c3", new ByteArrayInputStream(PNG),
+				"a.png", "image/png"));
+		assertNull(this.gridFsTemplate.findOne(new Query()));
+	}
+
+	@Test
+	void deleteTicketRemovesImage() {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1));
+		String imageId = this.ticketImageService.storeImage(ticket.getId(), new ByteArrayInputStream(PNG), "a.png",
+				"image/png");
+
+		this.ticketService.delete(ticket.getId());
+
+		assertNull(this.ticketImageService.findImage(imageId));
+	}
+
+	@Test
+	void migrateInlineImagesMovesContentToGridFs() throws Exception {
+		String collection = this.mongoTemplate.getCollectionName(Ticket.class);
+		this.mongoTemplate.insert(new Document("title", "inline").append("number", 1).append("image",
+				"data:image/png;base64," + Base64.getEncoder().encodeToString(PNG)), collection);
+		this.mongoTemplate.insert(new Document("title", "without image").append("number", 2), collection);
+
+		assertEquals(1, this.ticketImageService.migrateInlineImages());
+
+		Ticket ticket = findByNumber(1);
+		Document stored = this.mongoTemplate.findById(ticket.getId(), Document.class, collection);
+		assertFalse(stored.containsKey("image"));
+		assertEquals("image/png", this.ticketImageService.findImage(ticket.getImageId()).getContentType());
+		assertArrayEquals(PNG, StreamUtils
+				.copyToByteArray(this.ticketImageService.findImage(ticket.getImageId()).getInputStream()));
+		assertNull(findByNumber(2).getImageId());
+		assertEquals(0, this.ticketImageService.migrateInlineImages());
+	}
+
+	@Test
+	void migrateInlineImagesProcessesEveryBatch() {
+		String collection = this.mongoTemplate.getCollectionName(Ticket.class);
+		for (int number = 1; number <= 45; number++) {
+			this.mongoTemplate.insert(new Document("title", "inline " + number).append("number", number)
+					.append("image", Base64.getEncoder().encodeToString(PNG)), collection);
+		}
+
+		assertEquals(45, this.ticketImageService.migrateInlineImages());
+
+		assertEquals(0, this.mongoTemplate.count(new Query(where("image").exists(true)), collection));
+		assertNotNull(findByNumber(45).getImageId());
+	}
+
+	@Test
+	@WithMockUser(roles = "CUSTOMER")
+	void updateMigratesInlineImageBeforeSaving() throws Exception {
+		String collection = this.mongoTemplate.getCollectionName(Ticket.class);
+		this.mongoTemplate.insert(new Document("title", "inline").append("number", 1).append("status", "NEW")
+				.append("version", 0L)
+				.append("image", "data:image/png;base64," + Base64.getEncoder().encodeToString(PNG)), collection);
+		// migração em segundo plano ainda não terminou
+		Object target = AopTestUtils.getTargetObject(this.ticketImageService);
+		ReflectionTestUtils.setField(target, "inlineImagesMigrated", false);
+		String id = findByNumber(1).getId();
+
+		this.mockMvc.perform(put("/api/ticket").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"id\":\"" + id + "\",\"title\":\"edited\"}")).andExpect(status().isOk());
+
+		Ticket ticket = findByNumber(1);
+		assertEquals("edited", ticket.getTitle());
+		assertFalse(this.mongoTemplate.findById(id, Document.class, collection).containsKey("image"));
+		assertArrayEquals(PNG, StreamUtils
+				.copyToByteArray(this.ticketImageService.findImage(ticket.getImageId()).getInputStream()));
+	}
+
+	@Test
+	@WithMockUser(roles = "CUSTOMER")
+	void imageEndpointSupportsEtagAndRange() throws Exception {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1));
+		this.mockMvc.perform(multipart("/api/ticket/" + ticket.getId() + "/image")
+				.file(new MockMultipartFile("file", "a.png", "image/png", PNG))).andExpect(status().isOk());
+		String etag = "\"" + this.ticketService.findById(ticket.getId()).get().getImageId() + "\"";
+
+		this.mockMvc.perform(get("/api/ticket/" + ticket.getId() + "/image")).andExpect(status().isOk())
+				.andExpect(header().string("ETag", etag)).andExpect(header().string("Accept-Ranges", "bytes"))
+				.andExpect(content().contentType("image/png")).andExpect(content().bytes(PNG));
+		this.mockMvc.perform(get("/api/ticket/" + ticket.getId() + "/image").header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+		this.mockMvc.perform(get("/api/ticket/" + ticket.getId() + "/image").header("Range", "bytes=4-7"))
+				.andExpect(status().isPartialContent()).andExpect(header().string("Content-Range", "bytes 4-7/12"))
+				.andExpect(content().bytes(new byte[] { 1, 2, 3, 4 }));
+	}
+
+	private Ticket findByNumber(int number) {
+		return this.mongoTemplate.findOne(new Query(where("number").is(number)), Ticket.class);
+	}
+
+	private Ticket newTicket(int number) {
+		Ticket ticket = new Ticket();
+		ticket.setTitle("Ticket " + number);
+		ticket.setNumber(number);
+		ticket.setStatus(StatusEnum.NEW);
+		ticket.setPriority(PriorityEnum.NORMAL);
+		ticket.setDate(new Date());
+		return ticket;
+	}
+}
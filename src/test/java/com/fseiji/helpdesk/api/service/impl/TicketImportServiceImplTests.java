@@ -0,0 +1,188 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fseiji.helpdesk.MongoCommandCounter;
+import com.fseiji.helpdesk.api.config.IndexBootstrap;
+import com.fseiji.helpdesk.api.dto.Summary;
+import com.fseiji.helpdesk.api.dto.TicketImportSummary;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.Sequence;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.service.SequenceService;
+import com.fseiji.helpdesk.api.service.TicketImportService;
+import com.fseiji.helpdesk.api.service.TicketService;
+
+@SpringBootTest
+class TicketImportServiceImplTests {
+
+	@Autowired
+	private TicketImportService ticketImportService;
+
+	@Autowired
+	private TicketService ticketService;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private MongoCommandCounter mongoCommandCounter;
+
+	@Autowired
+	private SequenceService sequenceService;
+
+	@Autowired
+	private IndexBootstrap indexBootstrap;
+
+	@BeforeEach
+	void setUp() {
+		this.ticketRepository.deleteAll();
+		this.ticketService.reconcileSummary();
+		ReflectionTestUtils.setField(this.ticketImportService, "batchSize", 2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		ReflectionTestUtils.setField(this.ticketImportService, "batchSize", 500);
+	}
+
+	@Test
+	void importTicketsInBatchesAndReportsInvalidLines() throws Exception {
+		String content = "{\"title\":\"Printer offline\",\"priority\":\"HIGH\",\"status\":\"CLOSED\"}\n"
+				+ "{\"description\":\"no title\"}\n"
+				+ "\n"
+				+ "{\"title\":\"VPN down\",\"priority\":\"NORMAL\"}\n"
+				+ "not json\n"
+				+ "{\"title\":\"Mouse\",\"id\":\"foreign-42\",\"number\":7}\n";
+
+		this.mongoCommandCounter.reset();
+		TicketImportSummary summary = this.ticketImportService.importTickets(ndjson(content), customer());
+
+		assertEquals(5, summary.getLines());
+		assertEquals(3, summary.getImported());
+		assertEquals(2, summary.getFailed());
+		assertEquals(2, summary.getErrors().get(0).getLine());
+		assertEquals("Title no information", summary.getErrors().get(0).getError());
+		assertEquals(5, summary.getErrors().get(1).getLine());
+		assertTrue(summary.getErrors().get(1).getError().startsWith("Invalid JSON"));
+		assertFalse(summary.isErrorsTruncated());
+		// dois lotes: um cheio e o restante no fim do arquivo
+		assertEquals(2, this.mongoCommandCounter.count("insert"));
+		assertEquals(3, this.ticketRepository.count());
+
+		Summary counters = this.ticketService.findSummary();
+		assertEquals(2, counters.getAmountNew());
+		assertEquals(1, counters.getAmountClosed());
+		TicketSummaryView imported = this.ticketService.findByParameters(0, 10, "Mouse", "", "").getContent().get(0);
+		assertNotNull(imported.getNumber());
+		assertFalse("foreign-42".equals(imported.getId()));
+		Ticket ticket = this.ticketRepository.findById(imported.getId()).get();
+		assertEquals(0L, ticket.getVersion().longValue());
+	}
+
+	@Test
+	void importTicketsLimitsReportedErrors() throws Exception {
+		ReflectionTestUtils.setField(this.ticketImportService, "maxErrors", 1);
+		try {
+			TicketImportSummary summary = this.ticketImportService.importTickets(ndjson("{}\n{}\n{}\n"), customer());
+
+			assertEquals(3, summary.getFailed());
+			assertEquals(1, summary.getErrors().size());
+			assertTrue(summary.isErrorsTruncated());
+		} finally {
+			ReflectionTestUtils.setField(this.ticketImportService, "maxErrors", 100);
+		}
+	}
+
+	@Test
+	void importTicketsSkipsLinesAboveMaxLength() throws Exception {
+		ReflectionTestUtils.setField(this.ticketImportService, "maxLineLength", 100);
+		try {
+			StringBuilder longTitle = new StringBuilder();
+			for (int i = 0; i < 10_000; i++) {
+				longTitle.append('x');
+			}
+			String content = "{\"title\":\"Printer offline\"}\r\n"
+					+ "{\"title\":\"" + longTitle + "\"}\n"
+					+ "{\"title\":\"VPN down\"}";
+
+			TicketImportSummary summary = this.ticketImportService.importTickets(ndjson(content), customer());
+
+			// a linha seguinte à longa é lida normalmente
+			assertEquals(3, summary.getLines());
+			assertEquals(2, summary.getImported());
+			assertEquals(1, summary.getFailed());
+			assertEquals(2, summary.getErrors().get(0).getLine());
+			assertEquals("Line too long, maximum is 100 characters", summary.getErrors().get(0).getError());
+		} finally {
+			ReflectionTestUtils.setField(this.ticketImportService, "maxLineLength", 1048576);
+		}
+	}
+
+	@Test
+	void importTicketsKeepsBatchWhenOneDocumentFails() throws Exception {
+		this.indexBootstrap.ready().get(60, TimeUnit.SECONDS);
+		ReflectionTestUtils.setField(this.ticketImportService, "batchSize", 3);
+		// o segundo ticket do lote recebe um número que já existe (índice único de number)
+		long next = this.sequenceService.next(Sequence.TICKET_NUMBER);
+		Ticket existing = new Ticket();
+		existing.setTitle("Existing");
+		existing.setNumber((int) next + 2);
+		existing.setStatus(StatusEnum.NEW);
+		this.ticketService.createOrUpdate(existing);
+		String content = "{\"title\":\"First\",\"status\":\"CLOSED\"}\n"
+				+ "{\"title\":\"Duplicated number\",\"status\":\"CLOSED\"}\n"
+				+ "{\"title\":\"Third\",\"status\":\"NEW\"}\n";
+
+		TicketImportSummary summary = this.ticketImportService.importTickets(ndjson(content), customer());
+
+		assertEquals(3, summary.getLines());
+		assertEquals(2, summary.getImported());
+		assertEquals(1, summary.getFailed());
+		assertEquals(2, summary.getErrors().get(0).getLine());
+		assertTrue(summary.getErrors().get(0).getError().contains("E11000"));
+		assertEquals(3, this.ticketRepository.count());
+		assertEquals(1, this.ticketService.findByParameters(0, 10, "Third", "", "").getTotalElements());
+		Summary counters = this.ticketService.findSummary();
+		assertEquals(1, counters.getAmountClosed());
+		assertEquals(2, counters.getAmountNew());
+	}
+
+	@Test
+	void importTicketsRejectsBlankTitle() throws Exception {
+		TicketImportSummary summary = this.ticketImportService.importTickets(ndjson("{\"title\":\"  \"}\n"),
+				customer());
+
+		assertEquals(0, summary.getImported());
+		assertEquals("Title no information", summary.getErrors().get(0).getError());
+	}
+
+	private InputStream ndjson(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private User customer() {
+		User user = new User();
+		user.setId("5f0000000000000000000001");
+		user.setEmail("customer@import.test");
+		return user;
+	}
+}
@@ -0,0 +1,622 @@
+package com.fseiji.helpdesk.api.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fseiji.helpdesk.MongoCommandCounter;
+import com.fseiji.helpdesk.api.config.IndexBootstrap;
+
+import com.fseiji.helpdesk.api.dto.CursorPage;
+import com.fseiji.helpdesk.api.dto.Summary;
+import com.fseiji.helpdesk.api.dto.TicketFilter;
+import com.fseiji.helpdesk.api.dto.TicketSearchPage;
+import com.fseiji.helpdesk.api.dto.TicketSearchResult;
+import com.fseiji.helpdesk.api.dto.TicketStatusResult;
+import com.fseiji.helpdesk.api.dto.TicketSummaryView;
+import com.fseiji.helpdesk.api.entity.ChangeStatus;
+import com.fseiji.helpdesk.api.entity.StatusCounter;
+import com.fseiji.helpdesk.api.entity.Ticket;
+import com.fseiji.helpdesk.api.entity.User;
+import com.fseiji.helpdesk.api.enums.ChangeResultEnum;
+import com.fseiji.helpdesk.api.enums.PriorityEnum;
+import com.fseiji.helpdesk.api.enums.ProfileEnum;
+import com.fseiji.helpdesk.api.enums.StatusEnum;
+import com.fseiji.helpdesk.api.repository.ChangeStatusRepository;
+import com.fseiji.helpdesk.api.repository.StatusCounterRepository;
+import com.fseiji.helpdesk.api.repository.TicketRepository;
+import com.fseiji.helpdesk.api.repository.UserRepository;
+import com.fseiji.helpdesk.api.service.TicketService;
+
+@SpringBootTest
+class TicketServiceImplTests {
+
+	@Autowired
+	private TicketService ticketService;
+
+	@Autowired
+	private TicketRepository ticketRepository;
+
+	@Autowired
+	private StatusCounterRepository statusCounterRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ChangeStatusRepository changeStatusRepository;
+
+	@Autowired
+	private MongoCommandCounter mongoCommandCounter;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private IndexBootstrap indexBootstrap;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@BeforeEach
+	void setUp() {
+		this.ticketRepository.deleteAll();
+		this.ticketService.reconcileSummary();
+	}
+
+	@Test
+	void findSummaryMatchesFullScan() {
+		int number = 1;
+		for (StatusEnum status : StatusEnum.values()) {
+			for (int i = 0; i <= status.ordinal() * 2; i++) {
+				this.ticketService.createOrUpdate(newTicket(number++, status));
+			}
+		}
+
+		Summary expected = summaryFromFullScan();
+		Summary summary = this.ticketService.findSummary();
+
+		assertEquals(expected.getAmountNew(), summary.getAmountNew());
+		assertEquals(expected.getAmountResolved(), summary.getAmountResolved());
+		assertEquals(expected.getAmountApproved(), summary.getAmountApproved());
+		assertEquals(expected.getAmountDisapproved(), summary.getAmountDisapproved());
+		assertEquals(expected.getAmountAssigned(), summary.getAmountAssigned());
+		assertEquals(expected.getAmountClosed(), summary.getAmountClosed());
+	}
+
+	@Test
+	void findSummaryWithoutTickets() {
+		Summary summary = this.ticketService.findSummary();
+
+		assertEquals(0, summary.getAmountNew());
+		assertEquals(0, summary.getAmountClosed());
+	}
+
+	@Test
+	void findSummaryFollowsStatusChanges() {
+		Ticket first = this.ticketService.createOrUpdate(newTicket(1, StatusEnum.NEW));
+		Ticket second = this.ticketService.createOrUpdate(newTicket(2, StatusEnum.NEW));
+		this.ticketService.createOrUpdate(newTicket(3, StatusEnum.NEW));
+
+		this.ticketService.changeStatus(first.getId(), StatusEnum.NEW, StatusEnum.ASSIGNED, null);
+		this.ticketService.changeStatus(second.getId(), StatusEnum.NEW, StatusEnum.ASSIGNED, null);
+		this.ticketService.changeStatus(second.getId(), null, StatusEnum.RESOLVED, null);
+		this.ticketService.delete(first.getId());
+		this.ticketService.delete(first.getId());
+
+		Summary summary = this.ticketService.findSummary();
+
+		assertEquals(1, summary.getAmountNew());
+		assertEquals(0, summary.getAmountAssigned());
+		assertEquals(1, summary.getAmountResolved());
+	}
+
+	@Test
+	void changeStatusOnlyUpdatesChangedFields() {
+		User technician = this.userRepository.save(newUser("technician@status.test"));
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1, StatusEnum.NEW));
+
+		this.mongoCommandCounter.reset();
+		Ticket changed = this.ticketService.changeStatus(ticket.getId(), StatusEnum.NEW, StatusEnum.ASSIGNED,
+				technician);
+
+		BsonDocument command = this.mongoCommandCounter.lastCommand("findAndModify");
+		assertFalse(this.mongoCommandCounter.history().stream()
+				.anyMatch(c -> new BsonString("ticket").equals(c.get("update"))));
+		assertEquals(new BsonString("NEW"), command.getDocument("query").get("status"));
+		assertEquals(2, command.getDocument("update").getDocument("$set").size());
+		assertTrue(command.getDocument("update").getDocument("$inc").containsKey("version"));
+		assertEquals(StatusEnum.ASSIGNED, changed.getStatus());
+		assertEquals(ticket.getVersion() + 1, changed.getVersion().longValue());
+		assertEquals("technician@status.test", changed.getAssignedUser().getEmail());
+		this.userRepository.delete(technician);
+	}
+
+	@Test
+	void changeStatusRejectsStaleExpectedStatus() {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1, StatusEnum.NEW));
+		this.ticketService.changeStatus(ticket.getId(), StatusEnum.NEW, StatusEnum.ASSIGNED, null);
+
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> this.ticketService.changeStatus(ticket.getId(), StatusEnum.NEW, StatusEnum.CLOSED, null));
+		assertNull(this.ticketService.changeStatus("5f0000000000000000000000", StatusEnum.NEW, StatusEnum.CLOSED,
+				null));
+
+		Summary summary = this.ticketService.findSummary();
+		assertEquals(StatusEnum.ASSIGNED, this.ticketService.findById(ticket.getId()).get().getStatus());
+		assertEquals(1, summary.getAmountAssigned());
+		assertEquals(0, summary.getAmountClosed());
+	}
+
+	@Test
+	void changeStatusInBulkWritesOnceAndReportsEachId() {
+		User technician = this.userRepository.save(newUser("technician@bulk.test"));
+		Ticket first = this.ticketService.createOrUpdate(newTicket(1, StatusEnum.NEW));
+		Ticket second = this.ticketService.createOrUpdate(newTicket(2, StatusEnum.RESOLVED));
+		Ticket closed = this.ticketService.createOrUpdate(newTicket(3, StatusEnum.CLOSED));
+		this.changeStatusRepository.deleteAll();
+
+		this.mongoCommandCounter.reset();
+		List<TicketStatusResult> results = this.ticketService.changeStatus(Arrays.asList(first.getId(),
+				second.getId(), closed.getId(), "5f0000000000000000000000", "invalid", first.getId()),
+				StatusEnum.CLOSED, technician);
+
+		assertEquals(5, results.size());
+		assertEquals(ChangeResultEnum.CHANGED, results.get(0).getResult());
+		assertEquals(StatusEnum.NEW, results.get(0).getPrevious());
+		assertEquals(ChangeResultEnum.CHANGED, results.get(1).getResult());
+		assertEquals(ChangeResultEnum.UNCHANGED, results.get(2).getResult());
+		assertEquals(ChangeResultEnum.NOT_FOUND, results.get(3).getResult());
+		assertEquals(ChangeResultEnum.NOT_FOUND, results.get(4).getResult());
+		// leitura dos status, bulkWrite dos tickets, contadores e histórico
+		assertEquals(1, this.mongoCommandCounter.count("find"));
+		assertEquals(2, this.mongoCommandCounter.count("update"));
+		assertEquals(1, this.mongoCommandCounter.count("insert"));
+		assertEquals(2, this.changeStatusRepository.count());
+		assertEquals(StatusEnum.CLOSED, this.ticketService.findById(second.getId()).get().getStatus());
+		Summary summary = this.ticketService.findSummary();
+		assertEquals(0, summary.getAmountNew());
+		assertEquals(0, summary.getAmountResolved());
+		assertEquals(3, summary.getAmountClosed());
+		this.userRepository.delete(technician);
+	}
+
+	@Test
+	void updateWithStaleVersionFails() {
+		Ticket ticket = this.ticketService.createOrUpdate(newTicket(1, StatusEnum.NEW));
+		Ticket stale = this.ticketService.findById(ticket.getId()).get();
+		ticket.setTitle("Ticket 1 (edited)");
+		this.ticketService.createOrUpdate(ticket);
+
+		stale.setTitle("Ticket 1 (stale)");
+		assertThrows(OptimisticLockingFailureException.class, () -> this.ticketService.createOrUpdate(stale));
+		assertEquals("Ticket 1 (edited)", this.ticketService.findById(ticket.getId()).get().getTitle());
+	}
+
+	@Test
+	void reconcileSummaryRepairsDrift() {
+		this.ticketService.createOrUpdate(newTicket(1, StatusEnum.NEW));
+		this.statusCounterRepository.increment(StatusCounter.TICKET, StatusEnum.CLOSED, 5);
+
+		assertEquals(5, this.ticketService.findSummary().getAmountClosed());
+
+		Summary summary = this.ticketService.reconcileSummary();
+
+		assertEquals(1, summary.getAmountNew());
+		assertEquals(0, summary.getAmountClosed());
+		assertEquals(0, this.ticketService.findSummary().getAmountClosed());
+	}
+
+	@Test
+	void initSummaryKeepsExistingCounters() {
+		this.ticketService.createOrUpdate(newTicket(1, StatusEnum.NEW));
+		// incremento de outro nó ainda não refletido na contagem
+		this.statusCounterRepository.increment(StatusCounter.TICKET, StatusEnum.CLOSED, 1);
+
+		Summary summary = this.ticketService.initSummary();
+
+		assertEquals(1, summary.getAmountNew());
+		assertEquals(1, summary.getAmountClosed());
+		assertEquals(1, this.ticketService.findSummary().getAmountClosed());
+	}
+
+	@Test
+	void initSummaryCreatesMissingCounters() {
+		this.ticketService.createOrUpdate(newTicket(1, StatusEnum.NEW));
+		this.ticketService.createOrUpdate(newTicket(2, StatusEnum.CLOSED));
+		this.statusCounterRepository.deleteAll();
+
+		Summary summary = this.ticketService.initSummary();
+
+		assertEquals(1, summary.getAmountNew());
+		assertEquals(1, summary.getAmountClosed());
+		assertEquals(1, this.ticketService.findSummary().getAmountNew());
+	}
+
+	@Test
+	void listTicketSendsOnlySummaryFields() throws Exception {
+		User user = this.userRepository.save(newUser("user@ticket.test"));
+		for (int i = 0; i < 50; i++) {
+			Ticket ticket = newTicket(i + 1, StatusEnum.ASSIGNED);
+			ticket.setDescription("description " + (i + 1));
+			ticket.setImageId("5f8a0c0e1c9d440000a1b2c3");
+			ticket.setUser(user);
+			ticket.setAssignedUser(user);
+			this.ticketService.createOrUpdate(ticket);
+		}
+
+		this.mongoCommandCounter.reset();
+		Page<TicketSummaryView> tickets = this.ticketService.listTicket(0, 50);
+		String json = this.objectMapper.writeValueAsString(tickets);
+
+		// só a consulta da página: sem description, image e sem carregar os usuários
+		assertEquals(1, this.mongoCommandCounter.count("find"));
+		assertEquals(50, tickets.getNumberOfElements());
+		for (TicketSummaryView ticket : tickets) {
+			assertEquals("Ticket " + ticket.getNumber(), ticket.getTitle());
+			assertEquals(StatusEnum.ASSIGNED, ticket.getStatus());
+		}
+		assertFalse(json.contains("description"));
+		assertFalse(json.contains("image"));
+		assertFalse(json.contains("user@ticket.test"));
+
+		Ticket detail = this.ticketService.findDetail(tickets.getContent().get(0).getId());
+		assertEquals("description " + detail.getNumber(), detail.getDescription());
+		assertEquals("5f8a0c0e1c9d440000a1b2c3", detail.getImageId());
+		this.userRepository.delete(user);
+	}
+
+	@Test
+	void findDetailLoadsHistoryInOneAggregation() throws Exception {
+		User customer = this.userRepository.save(newUser("customer@detail.test"));
+		User technician = this.userRepository.save(newUser("technician@detail.test"));
+		Ticket ticket = newTicket(1, StatusEnum.NEW);
+		ticket.setUser(customer);
+		ticket = this.ticketService.createOrUpdate(ticket);
+		ticket = this.ticketService.changeStatus(ticket.getId(), StatusEnum.NEW, StatusEnum.ASSIGNED, technician);
+		this.ticketService.createChangeStatus(newChangeStatus(ticket, technician, StatusEnum.ASSIGNED, 1000));
+		this.ticketService.createChangeStatus(newChangeStatus(ticket, customer, StatusEnum.RESOLVED, 2000));
+		this.ticketService.createChangeStatus(newChangeStatus(ticket, technician, StatusEnum.CLOSED, 3000));
+
+		this.mongoCommandCounter.reset();
+		Ticket detail = this.ticketService.findDetail(ticket.getId());
+		String json = this.objectMapper.writeValueAsString(detail);
+
+		assertEquals(1, this.mongoCommandCounter.count("aggregate"));
+		assertEquals(0, this.mongoCommandCounter.count("find"));
+		assertEquals("customer@detail.test", detail.getUser().getEmail());
+		assertEquals("technician@detail.test", detail.getAssignedUser().getEmail());
+		assertEquals(3, detail.getChanges().size());
+		assertEquals(StatusEnum.CLOSED, detail.getChanges().get(0).getStatus());
+		assertEquals("technician@detail.test", detail.getChanges().get(0).getUserChange().getEmail());
+		assertEquals("customer@detail.test", detail.getChanges().get(1).getUserChange().getEmail());
+		assertNull(detail.getChanges().get(0).getTicket());
+		assertFalse(json.contains("123456"));
+		this.userRepository.deleteAll(Arrays.asList(customer, technician));
+	}
+
+	@Test
+	void findDetailOfUnknownTicket() {
+		assertNull(this.ticketService.findDetail("5f7a0c9e1c9d440000a1b2c3"));
+		assertNull(this.ticketService.findDetail("invalid"));
+	}
+
+	@Test
+	void listTicketAfterWalksAllPagesInDateOrder() {
+		for (int i = 0; i < 25; i++) {
+			Ticket ticket = newTicket(i + 1, i % 2 == 0 ? StatusEnum.NEW : StatusEnum.CLOSED);
+			// datas repetidas para exercitar o desempate pelo id
+			ticket.setDate(new Date(1000L * (i / 3)));
+			this.ticketService.createOrUpdate(ticket);
+		}
+
+		List<TicketSummaryView> walked = new ArrayList<TicketSummaryView>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			CursorPage<TicketSummaryView> page = this.ticketService.listTicketAfter(cursor, 10, new TicketFilter());
+			walked.addAll(page.getContent());
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertEquals(3, pages);
+		assertEquals(25, walked.size());
+		for (int i = 1; i < walked.size(); i++) {
+			TicketSummaryView previous = walked.get(i - 1);
+			TicketSummaryView current = walked.get(i);
+			assertTrue(previous.getDate().after(current.getDate()) || (previous.getDate().equals(current.getDate())
+					&& previous.getId().compareTo(current.getId()) > 0));
+		}
+
+		CursorPage<TicketSummaryView> closed = this.ticketService.listTicketAfter(null, 20, new TicketFilter("", "CLOSED", ""));
+		assertEquals(12, closed.getContent().size());
+		assertFalse(closed.isHasNext());
+	}
+
+	@Test
+	void listTicketAfterReachesTicketsWithoutDate() {
+		for (int i = 0; i < 7; i++) {
+			Ticket ticket = newTicket(i + 1, StatusEnum.NEW);
+			// tickets antigos, gravados antes da data ser obrigatória
+			ticket.setDate(i < 3 ? new Date(1000L * i) : null);
+			this.ticketService.createOrUpdate(ticket);
+		}
+
+		// o filtro de título também usa $and, como o cursor dos tickets sem data
+		TicketFilter filter = new TicketFilter("Ticket", "", "");
+		List<TicketSummaryView> walked = new ArrayList<TicketSummaryView>();
+		String cursor = null;
+		do {
+			CursorPage<TicketSummaryView> page = this.ticketService.listTicketAfter(cursor, 2, filter);
+			walked.addAll(page.getContent());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(7, walked.size());
+		assertEquals(7, walked.stream().map(TicketSummaryView::getId).distinct().count());
+		// os sem data vêm por último
+		assertTrue(walked.subList(0, 3).stream().allMatch(ticket -> ticket.getDate() != null));
+		assertTrue(walked.subList(3, 7).stream().allMatch(ticket -> ticket.getDate() == null));
+	}
+
+	@Test
+	void listTicketAfterRejectsInvalidCursor() {
+		assertThrows(IllegalArgumentException.class,
+				() -> this.ticketService.listTicketAfter("not-a-cursor", 10, new TicketFilter()));
+	}
+
+	@Test
+	void searchRejectsInvalidCursor() {
+		assertThrows(IllegalArgumentException.class,
+				() -> this.ticketService.search("printer", "not-a-cursor", 10, new TicketFilter(), false));
+	}
+
+	// o servidor em memória não tem $text: roda só com -Dtest.mongodb.uri (ver EmbeddedMongoConfig)
+	@Test
+	@EnabledIfSystemProperty(named = "test.mongodb.uri", matches = ".+")
+	void searchRanksByRelevanceAndPagesWithCursor() throws Exception {
+		this.indexBootstrap.ready().get(60, TimeUnit.SECONDS);
+		User customer = this.userRepository.save(newUser("customer@search.test"));
+		String[][] tickets = { { "Printer jammed", "The printer on floor 2 is jammed" },
+				{ "Network down", "No network, the printer is offline too" },
+				{ "Mouse broken", "Left button does not work" },
+				{ "Printer toner", "Printer says toner is low, printer still prints" } };
+		for (int i = 0; i < tickets.length; i++) {
+			Ticket ticket = newTicket(i + 1, StatusEnum.NEW);
+			ticket.setTitle(tickets[i][0]);
+			ticket.setDescription(tickets[i][1]);
+			ticket.setUser(i == 1 ? customer : null);
+			this.ticketService.createOrUpdate(ticket);
+		}
+
+		List<TicketSearchResult> walked = new ArrayList<TicketSearchResult>();
+		String cursor = null;
+		do {
+			CursorPage<TicketSearchResult> page = this.ticketService.search("printer", cursor, 1, new TicketFilter(), false);
+			walked.addAll(page.getContent());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(3, walked.size());
+		// o título pesa mais que a descrição: o ticket que só cita a impressora na descrição fica por último
+		assertEquals(Integer.valueOf(2), walked.get(2).getNumber());
+		for (int i = 1; i < walked.size(); i++) {
+			assertTrue(walked.get(i - 1).getScore() >= walked.get(i).getScore());
+		}
+		TicketFilter own = new TicketFilter();
+		own.setUserId(customer.getId());
+		TicketSearchPage customerPage = this.ticketService.search("printer", null, 10, own, true);
+		assertEquals(1, customerPage.getContent().size());
+		assertEquals(Integer.valueOf(2), customerPage.getContent().get(0).getNumber());
+		assertEquals(Long.valueOf(1), customerPage.getFacets().getStatus().get(StatusEnum.NEW));
+		assertEquals(Long.valueOf(1), customerPage.getFacets().getPriority().get(PriorityEnum.NORMAL));
+		assertEquals(Long.valueOf(0), customerPage.getFacets().getPriority().get(PriorityEnum.HIGH));
+		this.userRepository.delete(customer);
+	}
+
+	@Test
+	void findSliceDoesNotCount() {
+		for (int i = 0; i < 15; i++) {
+			this.ticketService.createOrUpdate(newTicket(i + 1, StatusEnum.NEW));
+		}
+
+		this.mongoCommandCounter.reset();
+		Slice<TicketSummaryView> first = this.ticketService.findSlice(0, 10, new TicketFilter("ticket", "", ""));
+		Slice<TicketSummaryView> second = this.ticketService.findSlice(1, 10, new TicketFilter("ticket", "", ""));
+
+		assertEquals(0, this.mongoCommandCounter.count("count") + this.mongoCommandCounter.count("aggregate"));
+		assertEquals(10, first.getNumberOfElements());
+		assertTrue(first.hasNext());
+		assertEquals(5, second.getNumberOfElements());
+		assertFalse(second.hasNext());
+	}
+
+	@Test
+	void findByParametersMatchesStatusAndPriorityExactly() {
+		for (int i = 0; i < 12; i++) {
+			Ticket ticket = newTicket(i + 1, i % 3 == 0 ? StatusEnum.CLOSED : StatusEnum.NEW);
+			ticket.setPriority(i % 2 == 0 ? PriorityEnum.HIGH : PriorityEnum.LOW);
+			this.ticketService.createOrUpdate(ticket);
+		}
+
+		this.mongoCommandCounter.reset();
+		Page<TicketSummaryView> closed = this.ticketService.findByParameters(0, 10, "", "CLOSED", "");
+		BsonDocument filter = this.mongoCommandCounter.lastCommand("find").getDocument("filter");
+
+		assertEquals(4, closed.getTotalElements());
+		// filtros vazios ficam de fora e o status é comparado por igualdade, sem regex
+		assertEquals(new BsonDocument("status", new BsonString("CLOSED")), filter);
+		assertEquals(2, this.ticketService.findByParameters(0, 10, "", "closed", "HIGH").getTotalElements());
+		assertEquals(1, this.ticketService.findByParameters(0, 10, "TICKET 12", "NEW", "").getTotalElements());
+		assertThrows(IllegalArgumentException.class, () -> this.ticketService.findByParameters(0, 10, "", "CLOS", ""));
+	}
+
+	@Test
+	void findByParametersOrdersByDateDesc() {
+		for (int i = 0; i < 5; i++) {
+			Ticket ticket = newTicket(i + 1, StatusEnum.NEW);
+			ticket.setDate(new Date(1000L * i));
+			this.ticketService.createOrUpdate(ticket);
+		}
+
+		Page<TicketSummaryView> tickets = this.ticketService.findByParameters(0, 3, "", "", "");
+
+		assertEquals(5, tickets.getTotalElements());
+		assertEquals(Arrays.asList(5, 4, 3), Arrays.asList(tickets.getContent().get(0).getNumber(),
+				tickets.getContent().get(1).getNumber(), tickets.getContent().get(2).getNumber()));
+	}
+
+	@Test
+	void findByParametersSearchesTitleThroughTrigrams() throws Exception {
+		String[] titles = { "Printer jammed", "Network down", "Printer offline", "Print queue stuck" };
+		for (int i = 0; i < titles.length; i++) {
+			Ticket ticket = newTicket(i + 1, StatusEnum.NEW);
+			ticket.setTitle(titles[i]);
+			ticket.setDate(new Date(1000L * i));
+			this.ticketService.createOrUpdate(ticket);
+		}
+
+		this.mongoCommandCounter.reset();
+		Page<TicketSummaryView> printers = this.ticketService.findByParameters(0, 10, "PRINT", "", "");
+		BsonDocument filter = this.mongoCommandCounter.lastCommand("find").getDocument("filter");
+
+		assertEquals(Arrays.asList(4, 3, 1), Arrays.asList(printers.getContent().get(0).getNumber(),
+				printers.getContent().get(1).getNumber(), printers.getContent().get(2).getNumber()));
+		assertEquals(3, printers.getTotalElements());
+		BsonDocument grams = filter.getArray("$and").get(0).asDocument().getArray("$or").get(0).asDocument();
+		assertTrue(grams.getDocument("titleGrams").getArray("$all").contains(new BsonString("pri")));
+		// os trigramas de "er o" estão em "Printer offline" e o regex confirma o trecho exato
+		assertEquals(1, this.ticketService.findByParameters(0, 10, "er o", "", "").getTotalElements());
+		assertEquals(0, this.ticketService.findByParameters(0, 10, "printer down", "", "").getTotalElements());
+		// trechos menores que um trigrama continuam funcionando pelo regex
+		assertEquals(2, this.ticketService.findByParameters(0, 10, "ne", "", "").getTotalElements());
+		String json = this.objectMapper.writeValueAsString(this.ticketService.findDetail(printers.getContent().get(0).getId()));
+		assertFalse(json.contains("titleGrams"));
+	}
+
+	@Test
+	void fillTitleGramsIndexesExistingTickets() {
+		this.ticketRepository.save(newTicket(1, StatusEnum.NEW));
+		// antes do preenchimento o ticket é encontrado só pelo regex
+		assertEquals(1, this.ticketService.findByParameters(0, 10, "ticket", "", "").getTotalElements());
+
+		assertEquals(1, this.ticketRepository.fillTitleGrams());
+
+		assertEquals(1, this.ticketService.findByParameters(0, 10, "ticket", "", "").getTotalElements());
+		assertEquals(0, this.ticketRepository.fillTitleGrams());
+	}
+
+	@Test
+	void fillTitleGramsProcessesEveryBatch() {
+		List<Ticket> tickets = new ArrayList<Ticket>();
+		for (int number = 1; number <= 1200; number++) {
+			tickets.add(newTicket(number, StatusEnum.NEW));
+		}
+		this.ticketRepository.saveAll(tickets);
+
+		assertEquals(1200, this.ticketRepository.fillTitleGrams());
+
+		assertEquals(0, this.mongoTemplate.count(new Query(where("titleGrams").exists(false)), Ticket.class));
+	}
+
+	@Test
+	void findWithApproximateTotalCachesCount() {
+		for (int i = 0; i < 15; i++) {
+			this.ticketService.createOrUpdate(newTicket(i + 1, i < 12 ? StatusEnum.NEW : StatusEnum.CLOSED));
+		}
+
+		Page<TicketSummaryView> tickets = this.ticketService.findWithApproximateTotal(0, 5, new TicketFilter("", "NEW", ""));
+		this.mongoCommandCounter.reset();
+		Page<TicketSummaryView> cached = this.ticketService.findWithApproximateTotal(1, 5, new TicketFilter("", "NEW", ""));
+
+		assertEquals(12, tickets.getTotalElements());
+		assertEquals(12, cached.getTotalElements());
+		assertEquals(0, this.mongoCommandCounter.count("count") + this.mongoCommandCounter.count("aggregate"));
+	}
+
+	private ChangeStatus newChangeStatus(Ticket ticket, User user, StatusEnum status, long date) {
+		ChangeStatus changeStatus = new ChangeStatus();
+		changeStatus.setTicket(ticket);
+		changeStatus.setUserChange(user);
+		changeStatus.setStatus(status);
+		changeStatus.setDateChangeStatus(new Date(date));
+		return changeStatus;
+	}
+
+	private User newUser(String email) {
+		User user = new User();
+		user.setEmail(email);
+		user.setPassword("123456");
+		user.setProfile(ProfileEnum.ROLE_CUSTOMER);
+		return user;
+	}
+
+	private Ticket newTicket(int number, StatusEnum status) {
+		Ticket ticket = new Ticket();
+		ticket.setTitle("Ticket " + number);
+		ticket.setNumber(number);
+		ticket.setStatus(status);
+		ticket.setPriority(PriorityEnum.NORMAL);
+		ticket.setDate(new Date());
+		return ticket;
+	}
+
+	// contagem feita em memória, como o /api/ticket/summary fazia antes da agregação
+	private Summary summaryFromFullScan() {
+		int amountNew = 0;
+		int amountResolved = 0;
+		int amountApproved = 0;
+		int amountDisapproved = 0;
+		int amountAssigned = 0;
+		int amountClosed = 0;
+		for (Iterator<Ticket> iterator = this.ticketService.findAll().iterator(); iterator.hasNext();) {
+			Ticket ticket = iterator.next();
+			if (ticket.getStatus().equals(StatusEnum.NEW)) {
+				amountNew++;
+			} else if (ticket.getStatus().equals(StatusEnum.RESOLVED)) {
+				amountResolved++;
+			} else if (ticket.getStatus().equals(StatusEnum.APPROVED)) {
+				amountApproved++;
+			} else if (ticket.getStatus().equals(StatusEnum.DISAPPROVED)) {
+				amountDisapproved++;
+			} else if (ticket.getStatus().equals(StatusEnum.ASSIGNED)) {
+				amountAssigned++;
+			} else if (ticket.getStatus().equals(StatusEnum.CLOSED)) {
+				amountClosed++;
+			}
+		}
+		Summary summary = new Summary();
+		summary.setAmountNew(amountNew);
+		summary.setAmountResolved(amountResolved);
+		summary.setAmountApproved(amountApproved);
+		summary.setAmountDisapproved(amountDisapproved);
+		summary.setAmountAssigned(amountAssigned);
+		summary.setAmountClosed(amountClosed);
+		return summary;
+	}
+}